@@ -0,0 +1,434 @@
+/*
+ * Copyright (c) 2007, 2015, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package org.marlin.geom;
+
+import java.awt.Rectangle;
+import java.awt.Shape;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.FlatteningPathIterator;
+import java.awt.geom.PathIterator;
+import java.awt.geom.Point2D;
+import java.awt.geom.Rectangle2D;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.NoSuchElementException;
+
+/**
+ * The {@code MappedPath2D} class is a read-only path view of a path record
+ * stored in a {@code ByteBuffer}, typically a memory-mapped file region
+ * ({@code FileChannel.map}): the Marlin renderer reads the segment types
+ * and coordinates directly from the buffer (no heap copy).
+ * <p>
+ * Path record layout (ints and floats use the buffer byte order):
+ * <pre>
+ * offset  size            content
+ * 0       4               int   winding rule (PathIterator.WIND_*)
+ * 4       4               int   numTypes: number of segments
+ * 8       4               int   numCoords: number of coordinates
+ * 12      numTypes        byte  segment types (PathIterator.SEG_*)
+ *         0 to 3          padding (4 bytes alignment)
+ *         4 * numCoords   float coordinates (x, y pairs)
+ * </pre>
+ * Records can be written by {@link #write(Shape, ByteBuffer)} and stored
+ * one after the other: {@link #getNextOffset()} gives the offset of the
+ * following record.
+ * <p>
+ * A single instance can be repositioned on any record (see
+ * {@link #at(int)}) so a whole dataset can be rendered without any
+ * allocation per feature. The buffer is only read with absolute accessors
+ * (its position is never used) but this class is not thread-safe.
+ */
+public final class MappedPath2D implements Shape {
+
+    // record header size in bytes:
+    public static final int HEADER_SIZE = 12;
+
+    // number of coordinates per segment type:
+    static final int[] CURVE_COORDS = {2, 2, 4, 6, 0};
+
+    private final ByteBuffer buffer;
+    // current record:
+    private int offset;
+    private int windingRule;
+    private int numTypes;
+    private int numCoords;
+
+    /**
+     * Creates a path view on the given buffer (positioned with at())
+     *
+     * @param buffer buffer containing path records
+     */
+    public MappedPath2D(final ByteBuffer buffer) {
+        if (buffer == null) {
+            throw new NullPointerException("buffer is null");
+        }
+        this.buffer = buffer;
+    }
+
+    /**
+     * Creates a path view on the record at the given offset
+     *
+     * @param buffer buffer containing path records
+     * @param offset record offset in bytes
+     * @exception IllegalArgumentException if the record is invalid
+     */
+    public MappedPath2D(final ByteBuffer buffer, final int offset) {
+        this(buffer);
+        at(offset);
+    }
+
+    /**
+     * Positions this view on the record at the given offset
+     *
+     * @param offset record offset in bytes
+     * @return this instance
+     * @exception IllegalArgumentException if the record is invalid
+     */
+    public MappedPath2D at(final int offset) {
+        final ByteBuffer buf = buffer;
+        if (offset < 0 || offset > buf.limit() - HEADER_SIZE) {
+            throw new IllegalArgumentException("invalid path record offset: "
+                                               + offset);
+        }
+        final int rule = buf.getInt(offset);
+        final int nTypes = buf.getInt(offset + 4);
+        final int nCoords = buf.getInt(offset + 8);
+
+        if ((rule != PathIterator.WIND_EVEN_ODD
+             && rule != PathIterator.WIND_NON_ZERO)
+            || nTypes < 0 || nCoords < 0
+            || recordLength(nTypes, nCoords) > buf.limit() - (long) offset)
+        {
+            throw new IllegalArgumentException("invalid path record at offset: "
+                                               + offset);
+        }
+        // check segment types and their coordinate count (used unchecked by
+        // the iterators and the Marlin renderer):
+        long sum = 0L;
+        for (int i = offset + HEADER_SIZE, end = i + nTypes; i < end; i++) {
+            final int type = buf.get(i);
+            if (type < PathIterator.SEG_MOVETO || type > PathIterator.SEG_CLOSE) {
+                throw new IllegalArgumentException("invalid segment type ["
+                                   + type + "] in path record at offset: "
+                                   + offset);
+            }
+            sum += CURVE_COORDS[type];
+        }
+        if (sum != nCoords) {
+            throw new IllegalArgumentException("invalid coordinate count ["
+                                   + nCoords + " != " + sum
+                                   + "] in path record at offset: " + offset);
+        }
+        this.offset = offset;
+        this.windingRule = rule;
+        this.numTypes = nTypes;
+        this.numCoords = nCoords;
+        return this; // fluent API
+    }
+
+    private static long recordLength(final int nTypes, final int nCoords) {
+        return HEADER_SIZE + ((nTypes + 3L) & ~3L) + 4L * nCoords;
+    }
+
+    /**
+     * Writes the given shape as a path record at the buffer position
+     * (relative put operations: the position is moved after the record)
+     *
+     * @param s shape to write
+     * @param dst destination buffer
+     * @return the record length in bytes
+     * @exception BufferOverflowException if the buffer is too small
+     */
+    public static int write(final Shape s, final ByteBuffer dst) {
+        final float[] coords = new float[6];
+
+        // first pass: sizes
+        int nTypes = 0, nCoords = 0;
+        PathIterator pi = s.getPathIterator(null);
+        final int rule = pi.getWindingRule();
+
+        for (; !pi.isDone(); pi.next()) {
+            nCoords += CURVE_COORDS[pi.currentSegment(coords)];
+            nTypes++;
+        }
+        final long len = recordLength(nTypes, nCoords);
+        if (len > dst.remaining()) {
+            throw new BufferOverflowException();
+        }
+        final int start = dst.position();
+        final int coordPos = start + HEADER_SIZE + ((nTypes + 3) & ~3);
+
+        dst.putInt(rule).putInt(nTypes).putInt(nCoords);
+
+        // second pass: types then coordinates (absolute puts)
+        int tpos = start + HEADER_SIZE, cpos = coordPos;
+        for (pi = s.getPathIterator(null); !pi.isDone(); pi.next()) {
+            final int type = pi.currentSegment(coords);
+            dst.put(tpos++, (byte) type);
+            for (int i = 0, n = CURVE_COORDS[type]; i < n; i++) {
+                dst.putFloat(cpos, coords[i]);
+                cpos += 4;
+            }
+        }
+        // padding:
+        while (tpos < coordPos) {
+            dst.put(tpos++, (byte) 0);
+        }
+        dst.position(cpos);
+        return (int) len;
+    }
+
+    /**
+     * Returns the offset of the current record
+     *
+     * @return record offset in bytes
+     */
+    public int getOffset() {
+        return offset;
+    }
+
+    /**
+     * Returns the offset of the record following the current one
+     *
+     * @return next record offset in bytes
+     */
+    public int getNextOffset() {
+        return (int) (offset + recordLength(numTypes, numCoords));
+    }
+
+    /**
+     * Returns the fill style winding rule.
+     *
+     * @return an integer representing the current winding rule.
+     */
+    public int getWindingRule() {
+        return windingRule;
+    }
+
+    // --- direct access (Marlin renderer) ---
+
+    /**
+     * Returns the underlying buffer.
+     * Note: internal use by the Marlin renderer (direct iteration)
+     *
+     * @return the buffer
+     */
+    public ByteBuffer getBuffer() {
+        return buffer;
+    }
+
+    /**
+     * Returns the number of path segments
+     *
+     * @return number of segments
+     */
+    public int getNumTypes() {
+        return numTypes;
+    }
+
+    /**
+     * Returns the number of coordinates
+     *
+     * @return number of coordinates
+     */
+    public int getNumCoords() {
+        return numCoords;
+    }
+
+    /**
+     * Returns the offset of the segment types in the buffer
+     *
+     * @return offset in bytes
+     */
+    public int getTypesOffset() {
+        return offset + HEADER_SIZE;
+    }
+
+    /**
+     * Returns the offset of the coordinates in the buffer
+     *
+     * @return offset in bytes
+     */
+    public int getCoordsOffset() {
+        return offset + HEADER_SIZE + ((numTypes + 3) & ~3);
+    }
+
+    // --- Shape implementation ---
+
+    @Override
+    public Rectangle getBounds() {
+        return getBounds2D().getBounds();
+    }
+
+    @Override
+    public Rectangle2D getBounds2D() {
+        final ByteBuffer buf = buffer;
+        float x1 = Float.POSITIVE_INFINITY, y1 = Float.POSITIVE_INFINITY;
+        float x2 = Float.NEGATIVE_INFINITY, y2 = Float.NEGATIVE_INFINITY;
+        float x, y;
+
+        for (int i = 0, pos = getCoordsOffset(); i < numCoords;
+             i += 2, pos += 8)
+        {
+            x = buf.getFloat(pos);
+            y = buf.getFloat(pos + 4);
+            if (x < x1) { x1 = x; }
+            if (y < y1) { y1 = y; }
+            if (x > x2) { x2 = x; }
+            if (y > y2) { y2 = y; }
+        }
+        if (x1 > x2) {
+            // empty path:
+            x1 = y1 = x2 = y2 = 0f;
+        }
+        return new Rectangle2D.Float(x1, y1, x2 - x1, y2 - y1);
+    }
+
+    @Override
+    public boolean contains(final double x, final double y) {
+        return Path2D.contains(getPathIterator(null), x, y);
+    }
+
+    @Override
+    public boolean contains(final Point2D p) {
+        return contains(p.getX(), p.getY());
+    }
+
+    @Override
+    public boolean intersects(final double x, final double y,
+                              final double w, final double h)
+    {
+        return Path2D.intersects(getPathIterator(null), x, y, w, h);
+    }
+
+    @Override
+    public boolean intersects(final Rectangle2D r) {
+        return intersects(r.getX(), r.getY(), r.getWidth(), r.getHeight());
+    }
+
+    @Override
+    public boolean contains(final double x, final double y,
+                            final double w, final double h)
+    {
+        return Path2D.contains(getPathIterator(null), x, y, w, h);
+    }
+
+    @Override
+    public boolean contains(final Rectangle2D r) {
+        return contains(r.getX(), r.getY(), r.getWidth(), r.getHeight());
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The returned iterator reads the current record: it must not be used
+     * after this view is moved to another record.
+     */
+    @Override
+    public PathIterator getPathIterator(final AffineTransform at) {
+        return new Iterator(this, at);
+    }
+
+    @Override
+    public PathIterator getPathIterator(final AffineTransform at,
+                                        final double flatness)
+    {
+        return new FlatteningPathIterator(getPathIterator(at), flatness);
+    }
+
+    static final class Iterator implements PathIterator {
+
+        private final ByteBuffer buffer;
+        private final AffineTransform at;
+        private final int windingRule;
+        private final int typeEnd;
+        private final float[] tmp;
+        private int typePos;
+        private int pointPos;
+
+        Iterator(final MappedPath2D path, final AffineTransform at) {
+            this.buffer = path.buffer;
+            this.at = at;
+            this.windingRule = path.windingRule;
+            this.typePos = path.getTypesOffset();
+            this.typeEnd = typePos + path.numTypes;
+            this.pointPos = path.getCoordsOffset();
+            this.tmp = (at != null) ? new float[6] : null;
+        }
+
+        @Override
+        public int getWindingRule() {
+            return windingRule;
+        }
+
+        @Override
+        public boolean isDone() {
+            return (typePos >= typeEnd);
+        }
+
+        @Override
+        public void next() {
+            pointPos += CURVE_COORDS[buffer.get(typePos++)] << 2;
+        }
+
+        @Override
+        public int currentSegment(final float[] coords) {
+            if (isDone()) {
+                throw new NoSuchElementException("path iterator out of bounds");
+            }
+            final int type = buffer.get(typePos);
+            final int n = CURVE_COORDS[type];
+            if (n > 0) {
+                final float[] dst = (at != null) ? tmp : coords;
+                for (int i = 0, pos = pointPos; i < n; i++, pos += 4) {
+                    dst[i] = buffer.getFloat(pos);
+                }
+                if (at != null) {
+                    at.transform(tmp, 0, coords, 0, n / 2);
+                }
+            }
+            return type;
+        }
+
+        @Override
+        public int currentSegment(final double[] coords) {
+            if (isDone()) {
+                throw new NoSuchElementException("path iterator out of bounds");
+            }
+            final int type = buffer.get(typePos);
+            final int n = CURVE_COORDS[type];
+            if (n > 0) {
+                for (int i = 0, pos = pointPos; i < n; i++, pos += 4) {
+                    coords[i] = buffer.getFloat(pos);
+                }
+                if (at != null) {
+                    at.transform(coords, 0, coords, 0, n / 2);
+                }
+            }
+            return type;
+        }
+    }
+}
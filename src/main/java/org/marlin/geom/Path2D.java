@@ -205,6 +205,18 @@ public abstract class Path2D implements Shape, Cloneable {
             this(WIND_NON_ZERO, INIT_SIZE);
         }
 
+        /**
+         * Returns the coordinate array (not a copy; only the first
+         * {@link #getNumCoords()} values are valid).
+         * Note: internal use by the Marlin renderer (direct iteration
+         * through Path2DAccessor), it must not be modified
+         *
+         * @return coordinates
+         */
+        final float[] getFloatCoordsArray() {
+            return floatCoords;
+        }
+
         /**
          * Constructs a new empty single precision {@code Path2D} object
          * with the specified winding rule to control operations that
@@ -1077,6 +1089,18 @@ public abstract class Path2D implements Shape, Cloneable {
             this(WIND_NON_ZERO, INIT_SIZE);
         }
 
+        /**
+         * Returns the coordinate array (not a copy; only the first
+         * {@link #getNumCoords()} values are valid).
+         * Note: internal use by the Marlin renderer (direct iteration
+         * through Path2DAccessor), it must not be modified
+         *
+         * @return coordinates
+         */
+        final double[] getDoubleCoordsArray() {
+            return doubleCoords;
+        }
+
         /**
          * Constructs a new empty double precision {@code Path2D} object
          * with the specified winding rule to control operations that
@@ -1952,6 +1976,38 @@ public abstract class Path2D implements Shape, Cloneable {
         return windingRule;
     }
 
+    /**
+     * Returns the number of path segments.
+     * Note: internal use by the Marlin renderer (direct iteration)
+     *
+     * @return number of segments
+     */
+    public final int getNumTypes() {
+        return numTypes;
+    }
+
+    /**
+     * Returns the number of coordinates.
+     * Note: internal use by the Marlin renderer (direct iteration)
+     *
+     * @return number of coordinates
+     */
+    public final int getNumCoords() {
+        return numCoords;
+    }
+
+    /**
+     * Returns the segment type array (not a copy; only the first
+     * {@link #getNumTypes()} values are valid).
+     * Note: internal use by the Marlin renderer (direct iteration
+     * through Path2DAccessor), it must not be modified
+     *
+     * @return segment types (PathIterator.SEG_*)
+     */
+    final byte[] getPointTypesArray() {
+        return pointTypes;
+    }
+
     /**
      * Sets the winding rule for this path to the specified value.
      *
@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) 2007, 2015, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.marlin.geom;
+
+import org.marlin.pisces.Path2DAccess;
+
+/**
+ * Package-private bridge giving the Marlin renderer (Path2DFeeder) the
+ * Path2D and Path2DBuilder arrays for direct iteration (instantiated by
+ * reflection)
+ */
+final class Path2DAccessor implements Path2DAccess {
+
+    Path2DAccessor() {
+        // used by Path2DFeeder (reflection)
+    }
+
+    @Override
+    public byte[] getPointTypesArray(final Path2D p2d) {
+        return p2d.getPointTypesArray();
+    }
+
+    @Override
+    public float[] getFloatCoordsArray(final Path2D.Float p2d) {
+        return p2d.getFloatCoordsArray();
+    }
+
+    @Override
+    public double[] getDoubleCoordsArray(final Path2D.Double p2d) {
+        return p2d.getDoubleCoordsArray();
+    }
+
+    @Override
+    public int getNumChunks(final Path2DBuilder pb) {
+        return pb.getNumChunks();
+    }
+
+    @Override
+    public byte[] getChunkTypes(final Path2DBuilder pb, final int i) {
+        return pb.getChunkTypes(i);
+    }
+
+    @Override
+    public int getChunkNumTypes(final Path2DBuilder pb, final int i) {
+        return pb.getChunkNumTypes(i);
+    }
+
+    @Override
+    public float[] getChunkCoords(final Path2DBuilder pb, final int i) {
+        return pb.getChunkCoords(i);
+    }
+
+    @Override
+    public int getChunkNumCoords(final Path2DBuilder pb, final int i) {
+        return pb.getChunkNumCoords(i);
+    }
+}
@@ -0,0 +1,560 @@
+/*
+ * Copyright (c) 2007, 2015, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package org.marlin.geom;
+
+import java.awt.Rectangle;
+import java.awt.Shape;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.FlatteningPathIterator;
+import java.awt.geom.IllegalPathStateException;
+import java.awt.geom.PathIterator;
+import java.awt.geom.Point2D;
+import java.awt.geom.Rectangle2D;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * The {@code Path2DBuilder} class is a single precision path (like
+ * {@link Path2D.Float}) optimized to build very large paths on a single
+ * thread:
+ * <ul>
+ * <li>its methods are not synchronized: it is not thread-safe</li>
+ * <li>segments are stored in chunks of increasing capacity: growing the
+ * path never copies existing segments</li>
+ * <li>polylines can be appended at once with
+ * {@link #lineTo(float[], int, int)}</li>
+ * <li>{@link #reset()} keeps the allocated chunks to build another path</li>
+ * </ul>
+ * It implements the same {@code Shape} contract as {@link Path2D.Float}
+ * and the Marlin renderer iterates its chunks directly.
+ */
+public final class Path2DBuilder implements Shape {
+
+    private static final byte SEG_MOVETO  = (byte) PathIterator.SEG_MOVETO;
+    private static final byte SEG_LINETO  = (byte) PathIterator.SEG_LINETO;
+    private static final byte SEG_QUADTO  = (byte) PathIterator.SEG_QUADTO;
+    private static final byte SEG_CUBICTO = (byte) PathIterator.SEG_CUBICTO;
+    private static final byte SEG_CLOSE   = (byte) PathIterator.SEG_CLOSE;
+
+    // capacity (segments) of the first chunk:
+    static final int INITIAL_CHUNK = 64;
+    // max capacity (segments) of chunks:
+    static final int MAX_CHUNK = 64 * 1024;
+
+    private int windingRule;
+    // chunks (used ones then recycled ones)
+    private Chunk[] chunks;
+    // number of used chunks
+    private int numChunks;
+    // current (last used) chunk
+    private Chunk cur;
+    // last segment type (or -1 if empty)
+    private int lastType;
+
+    /**
+     * Constructs a new empty path with a default winding rule of
+     * {@link PathIterator#WIND_NON_ZERO}.
+     */
+    public Path2DBuilder() {
+        this(PathIterator.WIND_NON_ZERO);
+    }
+
+    /**
+     * Constructs a new empty path with the specified winding rule.
+     *
+     * @param rule the winding rule
+     * @see #setWindingRule
+     */
+    public Path2DBuilder(final int rule) {
+        setWindingRule(rule);
+        this.chunks = new Chunk[8];
+        this.chunks[0] = new Chunk(INITIAL_CHUNK);
+        reset();
+    }
+
+    /**
+     * Removes all segments: the allocated chunks are kept to build another
+     * path without any allocation.
+     */
+    public void reset() {
+        for (int i = 0; i < numChunks; i++) {
+            chunks[i].clear();
+        }
+        numChunks = 1;
+        cur = chunks[0];
+        lastType = -1;
+    }
+
+    /**
+     * Returns the fill style winding rule.
+     *
+     * @return an integer representing the current winding rule.
+     */
+    public int getWindingRule() {
+        return windingRule;
+    }
+
+    /**
+     * Sets the winding rule for this path to the specified value.
+     *
+     * @param rule the winding rule
+     * @exception IllegalArgumentException if {@code rule} is not either
+     *          {@link PathIterator#WIND_EVEN_ODD} or
+     *          {@link PathIterator#WIND_NON_ZERO}
+     */
+    public void setWindingRule(final int rule) {
+        if (rule != PathIterator.WIND_EVEN_ODD
+            && rule != PathIterator.WIND_NON_ZERO)
+        {
+            throw new IllegalArgumentException("winding rule must be "+
+                                               "WIND_EVEN_ODD or "+
+                                               "WIND_NON_ZERO");
+        }
+        windingRule = rule;
+    }
+
+    /**
+     * Adds a point to the path by moving to the specified coordinates.
+     * Consecutive moveTo replace the previous point (as Path2D).
+     *
+     * @param x the specified X coordinate
+     * @param y the specified Y coordinate
+     */
+    public void moveTo(final float x, final float y) {
+        if (lastType == SEG_MOVETO) {
+            final float[] coords = cur.coords;
+            final int n = cur.numCoords;
+            coords[n - 2] = x;
+            coords[n - 1] = y;
+        } else {
+            final Chunk c = room(2);
+            c.types[c.numTypes++] = SEG_MOVETO;
+            final float[] coords = c.coords;
+            int n = c.numCoords;
+            coords[n++] = x;
+            coords[n++] = y;
+            c.numCoords = n;
+            lastType = SEG_MOVETO;
+        }
+    }
+
+    /**
+     * Adds a point to the path by drawing a straight line from the
+     * current coordinates to the new specified coordinates.
+     *
+     * @param x the specified X coordinate
+     * @param y the specified Y coordinate
+     */
+    public void lineTo(final float x, final float y) {
+        checkMoveTo();
+        final Chunk c = room(2);
+        c.types[c.numTypes++] = SEG_LINETO;
+        final float[] coords = c.coords;
+        int n = c.numCoords;
+        coords[n++] = x;
+        coords[n++] = y;
+        c.numCoords = n;
+        lastType = SEG_LINETO;
+    }
+
+    /**
+     * Adds the given points to the path as straight lines (polyline)
+     * from the current coordinates.
+     *
+     * @param xy point coordinates (x0, y0, x1, y1 ...)
+     * @param off offset of the first point in xy
+     * @param n number of points
+     */
+    public void lineTo(final float[] xy, int off, final int n) {
+        if (n <= 0) {
+            return;
+        }
+        checkMoveTo();
+        int todo = n;
+        while (todo > 0) {
+            Chunk c = cur;
+            int len = Math.min(todo, Math.min(c.types.length - c.numTypes,
+                                     (c.coords.length - c.numCoords) >> 1));
+            if (len == 0) {
+                c = room(2);
+                len = Math.min(todo, Math.min(c.types.length - c.numTypes,
+                                     (c.coords.length - c.numCoords) >> 1));
+            }
+            Arrays.fill(c.types, c.numTypes, c.numTypes + len, SEG_LINETO);
+            c.numTypes += len;
+            System.arraycopy(xy, off, c.coords, c.numCoords, len << 1);
+            c.numCoords += len << 1;
+            off += len << 1;
+            todo -= len;
+        }
+        lastType = SEG_LINETO;
+    }
+
+    /**
+     * Adds a curved segment, defined by two new points, to the path by
+     * drawing a Quadratic curve.
+     *
+     * @param x1 the X coordinate of the quadratic control point
+     * @param y1 the Y coordinate of the quadratic control point
+     * @param x2 the X coordinate of the final end point
+     * @param y2 the Y coordinate of the final end point
+     */
+    public void quadTo(final float x1, final float y1,
+                       final float x2, final float y2)
+    {
+        checkMoveTo();
+        final Chunk c = room(4);
+        c.types[c.numTypes++] = SEG_QUADTO;
+        final float[] coords = c.coords;
+        int n = c.numCoords;
+        coords[n++] = x1;
+        coords[n++] = y1;
+        coords[n++] = x2;
+        coords[n++] = y2;
+        c.numCoords = n;
+        lastType = SEG_QUADTO;
+    }
+
+    /**
+     * Adds a curved segment, defined by three new points, to the path by
+     * drawing a B&eacute;zier curve.
+     *
+     * @param x1 the X coordinate of the first B&eacute;zier control point
+     * @param y1 the Y coordinate of the first B&eacute;zier control point
+     * @param x2 the X coordinate of the second B&eacute;zier control point
+     * @param y2 the Y coordinate of the second B&eacute;zier control point
+     * @param x3 the X coordinate of the final end point
+     * @param y3 the Y coordinate of the final end point
+     */
+    public void curveTo(final float x1, final float y1,
+                        final float x2, final float y2,
+                        final float x3, final float y3)
+    {
+        checkMoveTo();
+        final Chunk c = room(6);
+        c.types[c.numTypes++] = SEG_CUBICTO;
+        final float[] coords = c.coords;
+        int n = c.numCoords;
+        coords[n++] = x1;
+        coords[n++] = y1;
+        coords[n++] = x2;
+        coords[n++] = y2;
+        coords[n++] = x3;
+        coords[n++] = y3;
+        c.numCoords = n;
+        lastType = SEG_CUBICTO;
+    }
+
+    /**
+     * Closes the current subpath by drawing a straight line back to
+     * the coordinates of the last {@code moveTo}.
+     */
+    public void closePath() {
+        if (lastType != SEG_CLOSE && lastType != -1) {
+            final Chunk c = room(0);
+            c.types[c.numTypes++] = SEG_CLOSE;
+            lastType = SEG_CLOSE;
+        }
+    }
+
+    private void checkMoveTo() {
+        if (lastType == -1) {
+            throw new IllegalPathStateException("missing initial moveto "+
+                                                "in path definition");
+        }
+    }
+
+    // returns the chunk able to store one segment having n coordinates:
+    private Chunk room(final int n) {
+        final Chunk c = cur;
+        if ((c.numTypes < c.types.length)
+            && (c.numCoords + n <= c.coords.length))
+        {
+            return c;
+        }
+        return nextChunk();
+    }
+
+    private Chunk nextChunk() {
+        if (numChunks == chunks.length) {
+            chunks = Arrays.copyOf(chunks, numChunks << 1);
+        }
+        Chunk c = chunks[numChunks];
+        if (c == null) {
+            // chunk capacity doubles up to MAX_CHUNK:
+            c = new Chunk(Math.min(cur.types.length << 1, MAX_CHUNK));
+            chunks[numChunks] = c;
+        }
+        numChunks++;
+        cur = c;
+        return c;
+    }
+
+    // --- direct access (Marlin renderer) ---
+
+    /**
+     * Returns the number of chunks.
+     * Note: internal use by the Marlin renderer (direct iteration
+     * through Path2DAccessor)
+     *
+     * @return number of chunks
+     */
+    int getNumChunks() {
+        return numChunks;
+    }
+
+    /**
+     * Returns the segment type array of the given chunk (not a copy).
+     * Note: internal use by the Marlin renderer (direct iteration
+     * through Path2DAccessor), it must not be modified
+     *
+     * @param i chunk index
+     * @return segment types (PathIterator.SEG_*)
+     */
+    byte[] getChunkTypes(final int i) {
+        return chunks[i].types;
+    }
+
+    /**
+     * Returns the number of segments of the given chunk.
+     *
+     * @param i chunk index
+     * @return number of segments
+     */
+    int getChunkNumTypes(final int i) {
+        return chunks[i].numTypes;
+    }
+
+    /**
+     * Returns the coordinate array of the given chunk (not a copy).
+     * Note: internal use by the Marlin renderer (direct iteration
+     * through Path2DAccessor), it must not be modified
+     *
+     * @param i chunk index
+     * @return coordinates
+     */
+    float[] getChunkCoords(final int i) {
+        return chunks[i].coords;
+    }
+
+    /**
+     * Returns the number of coordinates of the given chunk.
+     *
+     * @param i chunk index
+     * @return number of coordinates
+     */
+    int getChunkNumCoords(final int i) {
+        return chunks[i].numCoords;
+    }
+
+    // --- Shape implementation ---
+
+    @Override
+    public Rectangle getBounds() {
+        return getBounds2D().getBounds();
+    }
+
+    @Override
+    public Rectangle2D getBounds2D() {
+        float x1 = Float.POSITIVE_INFINITY, y1 = Float.POSITIVE_INFINITY;
+        float x2 = Float.NEGATIVE_INFINITY, y2 = Float.NEGATIVE_INFINITY;
+        float x, y;
+
+        for (int c = 0; c < numChunks; c++) {
+            final float[] coords = chunks[c].coords;
+            final int n = chunks[c].numCoords;
+
+            for (int i = 0; i < n; i += 2) {
+                x = coords[i];
+                y = coords[i + 1];
+                if (x < x1) { x1 = x; }
+                if (y < y1) { y1 = y; }
+                if (x > x2) { x2 = x; }
+                if (y > y2) { y2 = y; }
+            }
+        }
+        if (x1 > x2) {
+            // empty path:
+            x1 = y1 = x2 = y2 = 0f;
+        }
+        return new Rectangle2D.Float(x1, y1, x2 - x1, y2 - y1);
+    }
+
+    @Override
+    public boolean contains(final double x, final double y) {
+        return Path2D.contains(getPathIterator(null), x, y);
+    }
+
+    @Override
+    public boolean contains(final Point2D p) {
+        return contains(p.getX(), p.getY());
+    }
+
+    @Override
+    public boolean intersects(final double x, final double y,
+                              final double w, final double h)
+    {
+        return Path2D.intersects(getPathIterator(null), x, y, w, h);
+    }
+
+    @Override
+    public boolean intersects(final Rectangle2D r) {
+        return intersects(r.getX(), r.getY(), r.getWidth(), r.getHeight());
+    }
+
+    @Override
+    public boolean contains(final double x, final double y,
+                            final double w, final double h)
+    {
+        return Path2D.contains(getPathIterator(null), x, y, w, h);
+    }
+
+    @Override
+    public boolean contains(final Rectangle2D r) {
+        return contains(r.getX(), r.getY(), r.getWidth(), r.getHeight());
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The iterator for this class is not multi-threaded safe: the path
+     * must not be modified during the iteration.
+     */
+    @Override
+    public PathIterator getPathIterator(final AffineTransform at) {
+        return new Iterator(this, at);
+    }
+
+    @Override
+    public PathIterator getPathIterator(final AffineTransform at,
+                                        final double flatness)
+    {
+        return new FlatteningPathIterator(getPathIterator(at), flatness);
+    }
+
+    /**
+     * Segment storage (types and coordinates)
+     */
+    static final class Chunk {
+        final byte[] types;
+        final float[] coords;
+        int numTypes;
+        int numCoords;
+
+        Chunk(final int capacity) {
+            types = new byte[capacity];
+            // 2 coordinates per segment (lines):
+            coords = new float[Math.max(capacity << 1, 6)];
+        }
+
+        void clear() {
+            numTypes = 0;
+            numCoords = 0;
+        }
+    }
+
+    static final class Iterator implements PathIterator {
+
+        // number of coordinates per segment type:
+        private static final int[] CURVE_COORDS = {2, 2, 4, 6, 0};
+
+        private final Path2DBuilder path;
+        private final AffineTransform at;
+        private Chunk chunk;
+        private int chunkIdx = 0;
+        private int typeIdx = 0;
+        private int pointIdx = 0;
+
+        Iterator(final Path2DBuilder path, final AffineTransform at) {
+            this.path = path;
+            this.at = at;
+            this.chunk = path.chunks[0];
+        }
+
+        @Override
+        public int getWindingRule() {
+            return path.windingRule;
+        }
+
+        @Override
+        public boolean isDone() {
+            if (typeIdx < chunk.numTypes) {
+                return false;
+            }
+            // skip to the next non empty chunk:
+            while (chunkIdx + 1 < path.numChunks) {
+                chunk = path.chunks[++chunkIdx];
+                typeIdx = 0;
+                pointIdx = 0;
+                if (chunk.numTypes != 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public void next() {
+            pointIdx += CURVE_COORDS[chunk.types[typeIdx++]];
+        }
+
+        @Override
+        public int currentSegment(final float[] coords) {
+            if (isDone()) {
+                throw new NoSuchElementException("path iterator out of bounds");
+            }
+            final int type = chunk.types[typeIdx];
+            final int n = CURVE_COORDS[type];
+            if (n > 0) {
+                if (at != null) {
+                    at.transform(chunk.coords, pointIdx, coords, 0, n / 2);
+                } else {
+                    System.arraycopy(chunk.coords, pointIdx, coords, 0, n);
+                }
+            }
+            return type;
+        }
+
+        @Override
+        public int currentSegment(final double[] coords) {
+            if (isDone()) {
+                throw new NoSuchElementException("path iterator out of bounds");
+            }
+            final int type = chunk.types[typeIdx];
+            final int n = CURVE_COORDS[type];
+            if (n > 0) {
+                if (at != null) {
+                    at.transform(chunk.coords, pointIdx, coords, 0, n / 2);
+                } else {
+                    for (int i = 0; i < n; i++) {
+                        coords[i] = chunk.coords[pointIdx + i];
+                    }
+                }
+            }
+            return type;
+        }
+    }
+}
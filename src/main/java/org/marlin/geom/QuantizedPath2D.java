@@ -0,0 +1,452 @@
+/*
+ * Copyright (c) 2007, 2015, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package org.marlin.geom;
+
+import java.awt.Rectangle;
+import java.awt.Shape;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.FlatteningPathIterator;
+import java.awt.geom.PathIterator;
+import java.awt.geom.Point2D;
+import java.awt.geom.Rectangle2D;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * The {@code QuantizedPath2D} class is an immutable and compact copy of a
+ * shape (path geometry) designed to keep very many paths in memory:
+ * <ul>
+ * <li>coordinates are quantized on a regular grid (step) anchored at the
+ * bounding box origin then stored as delta-encoded zigzag varints (1 or 2
+ * bytes per value for typical polylines)</li>
+ * <li>segment types are run-length encoded (1 byte per run of up to 32
+ * segments of the same type)</li>
+ * </ul>
+ * Its path iterator decodes the geometry in a streaming way (no decoded
+ * copy). The maximum error on any coordinate is step / 2.
+ */
+public final class QuantizedPath2D implements Shape {
+
+    // number of coordinates per segment type:
+    static final int[] CURVE_COORDS = {2, 2, 4, 6, 0};
+
+    // max run length (segment types):
+    private static final int MAX_RUN = 32;
+
+    // default quantization levels (16 bits) over the bounding box:
+    private static final int DEFAULT_LEVELS = 65535;
+
+    // max grid coordinate (avoid int overflows in deltas):
+    private static final double MAX_GRID = 1 << 30;
+
+    private final int windingRule;
+    // grid origin and step:
+    private final double originX, originY, step;
+    // run-length encoded segment types: (run length - 1) << 3 | type
+    private final byte[] typeRuns;
+    // zigzag varint deltas of grid coordinates
+    private final byte[] data;
+    // number of segments
+    private final int numTypes;
+    // bounds (control points) in grid units
+    private final int minQX, minQY, maxQX, maxQY;
+
+    /**
+     * Creates a quantized copy of the given shape using 16 bits levels
+     * over its bounding box (step = max(width, height) / 65535).
+     *
+     * @param s the shape to copy
+     * @exception IllegalArgumentException if any coordinate is NaN or
+     *            infinite or if the shape extent overflows
+     */
+    public QuantizedPath2D(final Shape s) {
+        this(s, -1.0);
+    }
+
+    /**
+     * Creates a quantized copy of the given shape using the given grid step
+     * (user space units).
+     *
+     * @param s the shape to copy
+     * @param step the quantization step (&gt; 0); coordinates are rounded
+     *             to the nearest multiple of step from the bounding box
+     *             origin
+     * @exception IllegalArgumentException if any coordinate is NaN or
+     *            infinite, if the shape extent overflows, if the step is
+     *            infinite or too small for the shape extent (more than
+     *            2^30 levels)
+     */
+    public QuantizedPath2D(final Shape s, final double step) {
+        final double[] coords = new double[6];
+
+        // first pass: control point bounds
+        double x0 = java.lang.Double.POSITIVE_INFINITY;
+        double y0 = java.lang.Double.POSITIVE_INFINITY;
+        double x1 = java.lang.Double.NEGATIVE_INFINITY;
+        double y1 = java.lang.Double.NEGATIVE_INFINITY;
+        int nTypes = 0;
+
+        PathIterator pi = s.getPathIterator(null);
+        this.windingRule = pi.getWindingRule();
+
+        for (; !pi.isDone(); pi.next()) {
+            final int type = pi.currentSegment(coords);
+            for (int i = 0, n = CURVE_COORDS[type]; i < n; i += 2) {
+                if (!isFinite(coords[i]) || !isFinite(coords[i + 1])) {
+                    throw new IllegalArgumentException(
+                        "non-finite coordinate in segment [" + nTypes + "]: ("
+                        + coords[i] + ", " + coords[i + 1] + ")");
+                }
+                if (coords[i] < x0) { x0 = coords[i]; }
+                if (coords[i] > x1) { x1 = coords[i]; }
+                if (coords[i + 1] < y0) { y0 = coords[i + 1]; }
+                if (coords[i + 1] > y1) { y1 = coords[i + 1]; }
+            }
+            nTypes++;
+        }
+        if (x0 > x1) {
+            // no coordinates:
+            x0 = y0 = x1 = y1 = 0.0;
+        }
+        if (!isFinite(x1 - x0) || !isFinite(y1 - y0)) {
+            throw new IllegalArgumentException("shape extent overflow: ["
+                                               + x0 + ", " + y0 + "] - ["
+                                               + x1 + ", " + y1 + "]");
+        }
+        double _step = step;
+        if (!(_step > 0.0)) {
+            // default: 16 bits levels
+            _step = Math.max(x1 - x0, y1 - y0) / DEFAULT_LEVELS;
+            if (!(_step > 0.0)) {
+                _step = 1.0;
+            }
+        }
+        // finite step and inverse step:
+        if (!isFinite(_step) || !isFinite(1.0 / _step)) {
+            throw new IllegalArgumentException("invalid step: " + _step);
+        }
+        if ((x1 - x0) / _step > MAX_GRID || (y1 - y0) / _step > MAX_GRID) {
+            throw new IllegalArgumentException("step too small: " + step);
+        }
+        this.originX = x0;
+        this.originY = y0;
+        this.step = _step;
+        this.numTypes = nTypes;
+
+        // second pass: encoding
+        final double inv = 1.0 / _step;
+        byte[] runs = new byte[Math.max(8, nTypes / 8)];
+        byte[] buf = new byte[Math.max(16, nTypes * 2)];
+        int nRuns = 0, len = 0;
+        int runType = -1, runLen = 0;
+        int qx = 0, qy = 0, q;
+        int qx0 = Integer.MAX_VALUE, qy0 = Integer.MAX_VALUE;
+        int qx1 = Integer.MIN_VALUE, qy1 = Integer.MIN_VALUE;
+
+        for (pi = s.getPathIterator(null); !pi.isDone(); pi.next()) {
+            final int type = pi.currentSegment(coords);
+
+            // segment type runs:
+            if ((type != runType) || (runLen == MAX_RUN)) {
+                if (runLen != 0) {
+                    if (nRuns == runs.length) {
+                        runs = Arrays.copyOf(runs, nRuns << 1);
+                    }
+                    runs[nRuns++] = (byte) (((runLen - 1) << 3) | runType);
+                }
+                runType = type;
+                runLen = 0;
+            }
+            runLen++;
+
+            // coordinate deltas (at most 6 varints of 5 bytes):
+            final int n = CURVE_COORDS[type];
+            if (len + 30 > buf.length) {
+                buf = Arrays.copyOf(buf, (buf.length << 1) + 30);
+            }
+            for (int i = 0; i < n; i += 2) {
+                q = (int) Math.round((coords[i] - x0) * inv);
+                len = writeVarint(buf, len, q - qx);
+                qx = q;
+                if (q < qx0) { qx0 = q; }
+                if (q > qx1) { qx1 = q; }
+
+                q = (int) Math.round((coords[i + 1] - y0) * inv);
+                len = writeVarint(buf, len, q - qy);
+                qy = q;
+                if (q < qy0) { qy0 = q; }
+                if (q > qy1) { qy1 = q; }
+            }
+        }
+        if (runLen != 0) {
+            if (nRuns == runs.length) {
+                runs = Arrays.copyOf(runs, nRuns + 1);
+            }
+            runs[nRuns++] = (byte) (((runLen - 1) << 3) | runType);
+        }
+        if (qx0 > qx1) {
+            qx0 = qy0 = qx1 = qy1 = 0;
+        }
+        this.typeRuns = Arrays.copyOf(runs, nRuns);
+        this.data = Arrays.copyOf(buf, len);
+        this.minQX = qx0;
+        this.minQY = qy0;
+        this.maxQX = qx1;
+        this.maxQY = qy1;
+    }
+
+    private static boolean isFinite(final double v) {
+        return !(java.lang.Double.isNaN(v) || java.lang.Double.isInfinite(v));
+    }
+
+    // zigzag varint encoding:
+    private static int writeVarint(final byte[] buf, int pos, final int v) {
+        int z = (v << 1) ^ (v >> 31);
+        while ((z & ~0x7F) != 0) {
+            buf[pos++] = (byte) ((z & 0x7F) | 0x80);
+            z >>>= 7;
+        }
+        buf[pos++] = (byte) z;
+        return pos;
+    }
+
+    /**
+     * Returns the fill style winding rule.
+     *
+     * @return an integer representing the current winding rule.
+     */
+    public int getWindingRule() {
+        return windingRule;
+    }
+
+    /**
+     * Returns the quantization step (grid spacing in user space units)
+     *
+     * @return the quantization step
+     */
+    public double getStep() {
+        return step;
+    }
+
+    /**
+     * Returns the number of path segments
+     *
+     * @return the number of segments
+     */
+    public int getNumTypes() {
+        return numTypes;
+    }
+
+    /**
+     * Returns the size (bytes) of the encoded geometry (segment types and
+     * coordinates, excluding object headers)
+     *
+     * @return encoded size in bytes
+     */
+    public int getEncodedSize() {
+        return typeRuns.length + data.length;
+    }
+
+    // --- Shape implementation ---
+
+    @Override
+    public Rectangle getBounds() {
+        return getBounds2D().getBounds();
+    }
+
+    @Override
+    public Rectangle2D getBounds2D() {
+        final double x0 = originX + minQX * step;
+        final double y0 = originY + minQY * step;
+        return new Rectangle2D.Double(x0, y0,
+                                      originX + maxQX * step - x0,
+                                      originY + maxQY * step - y0);
+    }
+
+    @Override
+    public boolean contains(final double x, final double y) {
+        return Path2D.contains(getPathIterator(null), x, y);
+    }
+
+    @Override
+    public boolean contains(final Point2D p) {
+        return contains(p.getX(), p.getY());
+    }
+
+    @Override
+    public boolean intersects(final double x, final double y,
+                              final double w, final double h)
+    {
+        return Path2D.intersects(getPathIterator(null), x, y, w, h);
+    }
+
+    @Override
+    public boolean intersects(final Rectangle2D r) {
+        return intersects(r.getX(), r.getY(), r.getWidth(), r.getHeight());
+    }
+
+    @Override
+    public boolean contains(final double x, final double y,
+                            final double w, final double h)
+    {
+        return Path2D.contains(getPathIterator(null), x, y, w, h);
+    }
+
+    @Override
+    public boolean contains(final Rectangle2D r) {
+        return contains(r.getX(), r.getY(), r.getWidth(), r.getHeight());
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The returned iterator decodes the geometry on the fly.
+     */
+    @Override
+    public PathIterator getPathIterator(final AffineTransform at) {
+        return new Iterator(this, at);
+    }
+
+    @Override
+    public PathIterator getPathIterator(final AffineTransform at,
+                                        final double flatness)
+    {
+        return new FlatteningPathIterator(getPathIterator(at), flatness);
+    }
+
+    /**
+     * Streaming decoder: the current segment is decoded by next()
+     */
+    static final class Iterator implements PathIterator {
+
+        private final QuantizedPath2D path;
+        private final AffineTransform at;
+        private final byte[] typeRuns;
+        private final byte[] data;
+        private final double originX, originY, step;
+        // decoded coordinates of the current segment
+        private final double[] cur = new double[6];
+        private int runIdx = 0;
+        private int runLeft = 0;
+        private int type;
+        private int pos = 0;
+        private int qx = 0, qy = 0;
+        private boolean done = false;
+
+        Iterator(final QuantizedPath2D path, final AffineTransform at) {
+            this.path = path;
+            this.at = at;
+            this.typeRuns = path.typeRuns;
+            this.data = path.data;
+            this.originX = path.originX;
+            this.originY = path.originY;
+            this.step = path.step;
+            fetch();
+        }
+
+        private void fetch() {
+            if (runLeft == 0) {
+                if (runIdx >= typeRuns.length) {
+                    done = true;
+                    return;
+                }
+                final int run = typeRuns[runIdx++] & 0xFF;
+                type = run & 0x7;
+                runLeft = (run >>> 3) + 1;
+            }
+            runLeft--;
+
+            final double[] _cur = cur;
+            for (int i = 0, n = CURVE_COORDS[type]; i < n; i += 2) {
+                qx += readVarint();
+                qy += readVarint();
+                _cur[i    ] = originX + qx * step;
+                _cur[i + 1] = originY + qy * step;
+            }
+        }
+
+        // zigzag varint decoding:
+        private int readVarint() {
+            final byte[] _data = data;
+            int z = 0, b, shift = 0;
+            do {
+                b = _data[pos++];
+                z |= (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            return (z >>> 1) ^ -(z & 1);
+        }
+
+        @Override
+        public int getWindingRule() {
+            return path.windingRule;
+        }
+
+        @Override
+        public boolean isDone() {
+            return done;
+        }
+
+        @Override
+        public void next() {
+            fetch();
+        }
+
+        @Override
+        public int currentSegment(final float[] coords) {
+            if (done) {
+                throw new NoSuchElementException("path iterator out of bounds");
+            }
+            final int n = CURVE_COORDS[type];
+            if (n > 0) {
+                if (at != null) {
+                    at.transform(cur, 0, coords, 0, n / 2);
+                } else {
+                    for (int i = 0; i < n; i++) {
+                        coords[i] = (float) cur[i];
+                    }
+                }
+            }
+            return type;
+        }
+
+        @Override
+        public int currentSegment(final double[] coords) {
+            if (done) {
+                throw new NoSuchElementException("path iterator out of bounds");
+            }
+            final int n = CURVE_COORDS[type];
+            if (n > 0) {
+                if (at != null) {
+                    at.transform(cur, 0, coords, 0, n / 2);
+                } else {
+                    System.arraycopy(cur, 0, coords, 0, n);
+                }
+            }
+            return type;
+        }
+    }
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright (c) 2007, 2015, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.marlin.pisces;
+
+import sun.awt.geom.PathConsumer2D;
+
+/**
+ * PathConsumer2D accepting batches of path segments at once (packed segment
+ * types and coordinates) so the pipeline stage loops internally instead of
+ * paying one (megamorphic) interface call per segment.
+ * <p>
+ * It is equivalent to call moveTo(), lineTo(), quadTo(), curveTo() and
+ * closePath() for each segment in order; pathDone() is never called by
+ * segments().
+ */
+interface BulkPathConsumer2D extends PathConsumer2D {
+
+    /** max number of segments given per segments() call (pathTo) */
+    static final int MAX_SEGMENTS = 256;
+
+    /**
+     * Consumes the given segments
+     * Note: the coordinates may be modified by the consumer (in place)
+     * and both arrays are shared buffers valid only during this call.
+     * Renderer, Stroker and Dasher never modify them so they may be given
+     * the path arrays directly (Path2DFeeder)
+     *
+     * @param types segment types (PathIterator.SEG_*)
+     * @param numTypes number of segments
+     * @param coords packed coordinates (2 per point, none for SEG_CLOSE)
+     * @param numCoords number of coordinates
+     */
+    public void segments(byte[] types, int numTypes,
+                         float[] coords, int numCoords);
+}
@@ -24,9 +24,18 @@
  */
 package org.marlin.pisces;
 
+import java.awt.geom.PathIterator;
 import sun.awt.geom.PathConsumer2D;
 
-final class CollinearSimplifier implements PathConsumer2D {
+/**
+ * Path simplifier working in two modes:
+ * - collinear mode (tolerance = 0): merges consecutive lines having the same
+ * slope (stroker output)
+ * - tolerance mode (tolerance > 0): streaming sleeve fitting (device space)
+ * dropping the points deviating less than the tolerance from the emitted
+ * lines and replacing curves flatter than the tolerance by lines.
+ */
+final class CollinearSimplifier implements BulkPathConsumer2D {
 
     private final static int STATE_PREV_LINE = 0;
     private final static int STATE_PREV_POINT = 1;
@@ -40,12 +49,29 @@ final class CollinearSimplifier implements PathConsumer2D {
     float px1, py1, px2, py2;
     float pslope;
 
+    // tolerance mode: max deviation (0 means collinear mode)
+    float tolerance;
+    // sleeve from the anchor (px1, py1) to the pending point (px2, py2):
+    // cone of directions [right, left] passing within the tolerance of
+    // all skipped points (if cone is true)
+    boolean cone;
+    float lx, ly, rx, ry;
+    // max distance between the anchor and skipped points
+    float maxDist;
+
     CollinearSimplifier() {
     }
 
     public CollinearSimplifier init(PathConsumer2D delegate) {
+        return init(delegate, 0f);
+    }
+
+    public CollinearSimplifier init(PathConsumer2D delegate,
+                                    final float tolerance)
+    {
         this.delegate = delegate;
         this.state = STATE_EMPTY;
+        this.tolerance = tolerance;
 
         return this; // fluent API
     }
@@ -64,6 +90,41 @@ final class CollinearSimplifier implements PathConsumer2D {
         delegate.closePath();
     }
 
+    @Override
+    public void segments(final byte[] types, final int numTypes,
+                         final float[] coords, final int numCoords)
+    {
+        // consume segments (monomorphic calls):
+        int pos = 0;
+        for (int i = 0; i < numTypes; i++) {
+            switch (types[i]) {
+                case PathIterator.SEG_MOVETO:
+                    moveTo(coords[pos], coords[pos + 1]);
+                    pos += 2;
+                    continue;
+                case PathIterator.SEG_LINETO:
+                    lineTo(coords[pos], coords[pos + 1]);
+                    pos += 2;
+                    continue;
+                case PathIterator.SEG_QUADTO:
+                    quadTo(coords[pos],     coords[pos + 1],
+                           coords[pos + 2], coords[pos + 3]);
+                    pos += 4;
+                    continue;
+                case PathIterator.SEG_CUBICTO:
+                    curveTo(coords[pos],     coords[pos + 1],
+                            coords[pos + 2], coords[pos + 3],
+                            coords[pos + 4], coords[pos + 5]);
+                    pos += 6;
+                    continue;
+                case PathIterator.SEG_CLOSE:
+                    closePath();
+                    continue;
+                default:
+            }
+        }
+    }
+
     @Override
     public long getNativeConsumer() {
         return 0;
@@ -71,6 +132,15 @@ final class CollinearSimplifier implements PathConsumer2D {
 
     @Override
     public void quadTo(float x1, float y1, float x2, float y2) {
+        if ((tolerance > 0f) && (state != STATE_EMPTY)) {
+            // the curve lies in the convex hull of its end points and the
+            // middle points of its control polygon (tangent at t = 1/2):
+            if (sleeveCurveTo(0.5f * (getX() + x1), 0.5f * (getY() + y1),
+                              0.5f * (x1 + x2), 0.5f * (y1 + y2), x2, y2))
+            {
+                return;
+            }
+        }
         emitStashedLine();
         delegate.quadTo(x1, y1, x2, y2);
         // final end point:
@@ -82,6 +152,12 @@ final class CollinearSimplifier implements PathConsumer2D {
     @Override
     public void curveTo(float x1, float y1, float x2, float y2,
                         float x3, float y3) {
+        if ((tolerance > 0f) && (state != STATE_EMPTY)) {
+            // the curve lies in the convex hull of its control points:
+            if (sleeveCurveTo(x1, y1, x2, y2, x3, y3)) {
+                return;
+            }
+        }
         emitStashedLine();
         delegate.curveTo(x1, y1, x2, y2, x3, y3);
         // final end point:
@@ -101,6 +177,10 @@ final class CollinearSimplifier implements PathConsumer2D {
 
     @Override
     public void lineTo(final float x, final float y) {
+        if (tolerance > 0f) {
+            sleeveLineTo(x, y);
+            return;
+        }
         // most probable case first:
         if (state == STATE_PREV_LINE) {
             final float slope = getSlope(px2, py2, x, y);
@@ -137,6 +217,175 @@ final class CollinearSimplifier implements PathConsumer2D {
         }
     }
 
+    private void sleeveLineTo(final float x, final float y) {
+        // most probable case first:
+        if (state == STATE_PREV_LINE) {
+            final float dx = x - px1;
+            final float dy = y - py1;
+            final float d2 = dx * dx + dy * dy;
+            if (inSleeve(dx, dy, d2)) {
+                // skip the pending point:
+                narrow(dx, dy, d2);
+                px2 = x;
+                py2 = y;
+                return;
+            }
+            // emit the pending point as the new anchor:
+            delegate.lineTo(px2, py2);
+            px1 = px2;
+            py1 = py2;
+        } else if (state == STATE_EMPTY) {
+            delegate.lineTo(x, y);
+            state = STATE_PREV_POINT;
+            px1 = x;
+            py1 = y;
+            return;
+        }
+        // start a new sleeve from the anchor:
+        state = STATE_PREV_LINE;
+        cone = false;
+        maxDist = 0f;
+        final float dx = x - px1;
+        final float dy = y - py1;
+        narrow(dx, dy, dx * dx + dy * dy);
+        px2 = x;
+        py2 = y;
+    }
+
+    /**
+     * Replaces the curve from the current point by a line if the given hull
+     * points (whose convex hull with the current point contains the curve)
+     * fit in the sleeve: the curve is then within the tolerance of the
+     * simplified line as the distance to a segment is convex.
+     *
+     * @return true if the curve was merged in the sleeve
+     */
+    private boolean sleeveCurveTo(final float ax, final float ay,
+                                  final float bx, final float by,
+                                  final float ex, final float ey)
+    {
+        if ((state == STATE_PREV_LINE) && fitSleeve(ax, ay, bx, by, ex, ey)) {
+            px2 = ex;
+            py2 = ey;
+            return true;
+        }
+        if (state == STATE_PREV_LINE) {
+            // emit the pending point as the new anchor (curve start):
+            delegate.lineTo(px2, py2);
+            px1 = px2;
+            py1 = py2;
+            state = STATE_PREV_POINT;
+        }
+        // start a new sleeve from the anchor:
+        cone = false;
+        maxDist = 0f;
+        if (fitSleeve(ax, ay, bx, by, ex, ey)) {
+            state = STATE_PREV_LINE;
+            px2 = ex;
+            py2 = ey;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Narrows the sleeve with the given points if they all fit in it
+     * (unchanged otherwise)
+     */
+    private boolean fitSleeve(final float ax, final float ay,
+                              final float bx, final float by,
+                              final float ex, final float ey)
+    {
+        // backup the sleeve:
+        final boolean _cone = cone;
+        final float _lx = lx, _ly = ly, _rx = rx, _ry = ry;
+        final float _maxDist = maxDist;
+
+        if (fitPoint(ax, ay) && fitPoint(bx, by) && fitPoint(ex, ey)) {
+            return true;
+        }
+        // restore the sleeve:
+        cone = _cone;
+        lx = _lx; ly = _ly;
+        rx = _rx; ry = _ry;
+        maxDist = _maxDist;
+        return false;
+    }
+
+    private boolean fitPoint(final float x, final float y) {
+        final float dx = x - px1;
+        final float dy = y - py1;
+        final float d2 = dx * dx + dy * dy;
+        if (inSleeve(dx, dy, d2)) {
+            narrow(dx, dy, d2);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Returns true if the line from the anchor in the given direction passes
+     * within the tolerance of all skipped points and the pending point
+     */
+    private boolean inSleeve(final float dx, final float dy, final float d2) {
+        // backtracking beyond the tolerance:
+        final float back = maxDist - tolerance;
+        if ((back > 0f) && (d2 < back * back)) {
+            return false;
+        }
+        if (!cone) {
+            // all points are within the tolerance of the anchor
+            return true;
+        }
+        // direction within [right, left]:
+        return ((rx * dy - ry * dx) >= 0f) && ((dx * ly - dy * lx) >= 0f);
+    }
+
+    /**
+     * Narrows the cone of directions to the ones passing within the
+     * tolerance of the point at the given offset from the anchor
+     */
+    private void narrow(final float dx, final float dy, final float d2) {
+        final float tol = tolerance;
+        if (d2 <= tol * tol) {
+            // any direction passes within the tolerance
+            return;
+        }
+        if (d2 > maxDist * maxDist) {
+            maxDist = (float) Math.sqrt(d2);
+        }
+        // rotate the direction by the cone half-angle (asin(tol / d))
+        // scaled by d (only signs of cross products matter):
+        final float k = (float) Math.sqrt(d2 - tol * tol);
+        final float nlx = k * dx - tol * dy;
+        final float nly = tol * dx + k * dy;
+        final float nrx = k * dx + tol * dy;
+        final float nry = k * dy - tol * dx;
+
+        if (!cone) {
+            cone = true;
+            lx = nlx; ly = nly;
+            rx = nrx; ry = nry;
+            return;
+        }
+        // keep the narrowest bounds:
+        if ((lx * nly - ly * nlx) < 0f) {
+            lx = nlx; ly = nly;
+        }
+        if ((rx * nry - ry * nrx) > 0f) {
+            rx = nrx; ry = nry;
+        }
+    }
+
+    // current point (state != STATE_EMPTY)
+    private float getX() {
+        return (state == STATE_PREV_LINE) ? px2 : px1;
+    }
+
+    private float getY() {
+        return (state == STATE_PREV_LINE) ? py2 : py1;
+    }
+
     private void emitStashedLine() {
         if (state == STATE_PREV_LINE) {
             delegate.lineTo(px2, py2);
@@ -24,6 +24,7 @@
  */
 package org.marlin.pisces;
 
+import java.awt.geom.PathIterator;
 import java.util.Arrays;
 import sun.awt.geom.PathConsumer2D;
 
@@ -33,17 +34,31 @@ import sun.awt.geom.PathConsumer2D;
  * <code>end</code>) and breaks them into smaller segments according to a
  * dash pattern array and a starting dash phase.
  *
+ * <p> If a clip rectangle is given, dashes outside are skipped: the dash
+ * pattern is advanced by the invisible arc length (complete dash patterns
+ * at once) without emitting any segment.
+ *
  * <p> Issues: in J2Se, a zero length dash segment as drawn as a very
  * short dash, whereas Pisces does not draw anything.  The PostScript
  * semantics are unclear.
  *
  */
-final class Dasher implements sun.awt.geom.PathConsumer2D, MarlinConst {
+final class Dasher implements BulkPathConsumer2D, MarlinConst {
 
     final static int REC_LIMIT = 4;
     final static float ERR = 0.01f;
     final static float MIN_TINCREMENT = 1f / (1 << REC_LIMIT);
 
+    // dash patterns smaller than 1 pixel (device space) whose gaps are
+    // closed by square caps are stroked as a solid line
+    final static float MIN_DASH_CYCLE = 1f;
+
+    // outcodes relative to the clip rectangle:
+    private final static int OUTCODE_TOP    = 1;
+    private final static int OUTCODE_BOTTOM = 2;
+    private final static int OUTCODE_LEFT   = 4;
+    private final static int OUTCODE_RIGHT  = 8;
+
     private PathConsumer2D out;
     private float[] dash;
     private int dashLen;
@@ -61,6 +76,13 @@ final class Dasher implements sun.awt.geom.PathConsumer2D, MarlinConst {
     private float sx, sy;
     private float x0, y0;
 
+    // dash pattern length (dash array sum, twice if dashLen is odd)
+    private float cycleLen;
+
+    // clip rectangle (dasher space) used to skip invisible dashes
+    private boolean clipEnabled;
+    private float clipMinX, clipMinY, clipMaxX, clipMaxY;
+
     // temporary storage for the current curve
     private final float[] curCurvepts;
 
@@ -121,6 +143,8 @@ final class Dasher implements sun.awt.geom.PathConsumer2D, MarlinConst {
 
         this.dash = dash;
         this.dashLen = dashLen;
+        this.cycleLen = cycleLength(dash, dashLen);
+        this.clipEnabled = false;
         this.startPhase = this.phase = phase;
         this.startDashOn = dashOn;
         this.startIdx = idx;
@@ -133,6 +157,61 @@ final class Dasher implements sun.awt.geom.PathConsumer2D, MarlinConst {
         return this; // fluent API
     }
 
+    /**
+     * Sets the clip rectangle (in dasher space) including the stroke margin
+     * (caps, joins) so dashes outside are skipped (not emitted)
+     *
+     * @param minX clip min x (inclusive)
+     * @param minY clip min y (inclusive)
+     * @param maxX clip max x (exclusive)
+     * @param maxY clip max y (exclusive)
+     */
+    void setClipRect(final float minX, final float minY,
+                     final float maxX, final float maxY)
+    {
+        this.clipMinX = minX;
+        this.clipMinY = minY;
+        this.clipMaxX = maxX;
+        this.clipMaxY = maxY;
+        this.clipEnabled = true;
+    }
+
+    /**
+     * Returns the length of the complete dash pattern ie the arc length after
+     * which the dash index and the dash state (on / off) repeat
+     *
+     * @param dash dash array
+     * @param dashLen length of the given dash array
+     * @return dash pattern length
+     */
+    static float cycleLength(final float[] dash, final int dashLen) {
+        float sum = 0f;
+        for (int i = 0; i < dashLen; i++) {
+            sum += dash[i];
+        }
+        // odd dash array: on/off states are swapped after one sum:
+        return ((dashLen & 1) != 0) ? 2f * sum : sum;
+    }
+
+    /**
+     * Returns the longest 'off' dash (gap) of the dash pattern
+     *
+     * @param dash dash array
+     * @param dashLen length of the given dash array
+     * @return longest gap length
+     */
+    static float maxGap(final float[] dash, final int dashLen) {
+        // odd dash array: every dash is 'off' once per cycle:
+        final int step = ((dashLen & 1) != 0) ? 1 : 2;
+        float max = 0f;
+        for (int i = step - 1; i < dashLen; i += step) {
+            if (dash[i] > max) {
+                max = dash[i];
+            }
+        }
+        return max;
+    }
+
     /**
      * Disposes this dasher:
      * clean up before reusing this instance
@@ -244,8 +323,158 @@ final class Dasher implements sun.awt.geom.PathConsumer2D, MarlinConst {
         this.y0 = y;
     }
 
+    private int outcode(final float x, final float y) {
+        int code = (y < clipMinY) ? OUTCODE_TOP
+                   : ((y >= clipMaxY) ? OUTCODE_BOTTOM : 0);
+        if (x < clipMinX) {
+            code |= OUTCODE_LEFT;
+        } else if (x >= clipMaxX) {
+            code |= OUTCODE_RIGHT;
+        }
+        return code;
+    }
+
+    // Advance the dash pattern by the given arc length without emitting
+    // anything (invisible dashes): jump over complete dash patterns first.
+    private void skipLen(float len) {
+        if (len >= cycleLen) {
+            len %= cycleLen;
+        }
+        final float[] _dash = dash;
+        float leftInThisDashSegment;
+
+        while (len >= (leftInThisDashSegment = _dash[idx] - phase)) {
+            len -= leftInThisDashSegment;
+            // Advance to next dash segment
+            idx = (idx + 1) % dashLen;
+            dashOn = !dashOn;
+            phase = 0f;
+        }
+        phase += len;
+
+        // the next dash (visible) must start a new subpath:
+        needsMoveTo = true;
+    }
+
+    // Stops buffering the first dash if the subpath start point is invisible
+    // (so its closing join): return true if dashes can be skipped
+    private boolean endStarting() {
+        if (outcode(sx, sy) == 0) {
+            return false;
+        }
+        if (firstSegidx > 0) {
+            out.moveTo(sx, sy);
+            emitFirstSegments();
+            // the current dash goes on if dashOn:
+            needsMoveTo = !dashOn;
+        }
+        starting = false;
+        return true;
+    }
+
     @Override
     public void lineTo(float x1, float y1) {
+        if (clipEnabled) {
+            final int outcode1 = outcode(x1, y1);
+
+            if ((outcode(x0, y0) | outcode1) != 0) {
+                if (starting && !endStarting()) {
+                    // visible start point: dash the first dash normally
+                    if (dashOn) {
+                        final float dx = x1 - x0;
+                        final float dy = y1 - y0;
+                        final float len = (float) Math.sqrt(dx*dx + dy*dy);
+                        final float left = dash[idx] - phase;
+
+                        if (len <= left) {
+                            _lineTo(x1, y1);
+                            return;
+                        }
+                        final float t = left / len;
+                        _lineTo(x0 + t * dx, y0 + t * dy);
+                        // next dash must start a new subpath:
+                        needsMoveTo = true;
+                    }
+                    starting = false;
+                }
+                clippedLineTo(x1, y1, outcode(x0, y0), outcode1);
+                return;
+            }
+        }
+        _lineTo(x1, y1);
+    }
+
+    // precondition: the segment (x0,y0) - (x1,y1) is not fully visible
+    private void clippedLineTo(final float x1, final float y1,
+                               final int outcode0, final int outcode1)
+    {
+        final float dx = x1 - x0;
+        final float dy = y1 - y0;
+
+        float len = dx*dx + dy*dy;
+        if (len == 0f) {
+            return;
+        }
+        len = (float) Math.sqrt(len);
+
+        float t0 = 0f, t1 = 1f;
+
+        if ((outcode0 & outcode1) == 0) {
+            // Liang-Barsky: parametric range [t0; t1] inside the clip:
+            if (dx != 0f) {
+                final float tmin = (clipMinX - x0) / dx;
+                final float tmax = (clipMaxX - x0) / dx;
+                if (dx > 0f) {
+                    if (tmin > t0) { t0 = tmin; }
+                    if (tmax < t1) { t1 = tmax; }
+                } else {
+                    if (tmax > t0) { t0 = tmax; }
+                    if (tmin < t1) { t1 = tmin; }
+                }
+            }
+            if (dy != 0f) {
+                final float tmin = (clipMinY - y0) / dy;
+                final float tmax = (clipMaxY - y0) / dy;
+                if (dy > 0f) {
+                    if (tmin > t0) { t0 = tmin; }
+                    if (tmax < t1) { t1 = tmax; }
+                } else {
+                    if (tmax > t0) { t0 = tmax; }
+                    if (tmin < t1) { t1 = tmin; }
+                }
+            }
+        } else {
+            // both points on the same outside side:
+            t0 = 1f;
+        }
+
+        if (t0 >= t1) {
+            // invisible segment:
+            skipLen(len);
+        } else {
+            final float sx0 = x0;
+            final float sy0 = y0;
+            if (t0 > 0f) {
+                // skip invisible part [0; t0]:
+                skipLen(t0 * len);
+                x0 = sx0 + t0 * dx;
+                y0 = sy0 + t0 * dy;
+            }
+            if (t1 < 1f) {
+                // dash visible part [t0; t1]:
+                _lineTo(sx0 + t1 * dx, sy0 + t1 * dy);
+                // skip invisible part [t1; 1]:
+                skipLen((1f - t1) * len);
+            } else {
+                _lineTo(x1, y1);
+                return;
+            }
+        }
+        this.x0 = x1;
+        this.y0 = y1;
+    }
+
+    private void _lineTo(float x1, float y1) {
         float dx = x1 - x0;
         float dy = y1 - y0;
 
@@ -312,10 +541,15 @@ final class Dasher implements sun.awt.geom.PathConsumer2D, MarlinConst {
 
     // preconditions: curCurvepts must be an array of length at least 2 * type,
     // that contains the curve we want to dash in the first type elements
-    private void somethingTo(int type) {
+    private void somethingTo(final int type) {
         if (pointCurve(curCurvepts, type)) {
             return;
         }
+        if (clipEnabled && isInvisible(curCurvepts, 0, type)) {
+            // control points on the same outside side (invisible curve):
+            skipCurve(type);
+            return;
+        }
         li.initializeIterationOnCurve(curCurvepts, type);
 
         // initially the current curve is at curCurvepts[0...type]
@@ -331,7 +565,12 @@ final class Dasher implements sun.awt.geom.PathConsumer2D, MarlinConst {
                                     curCurvepts, 0,
                                     curCurvepts, type, type);
                 lastSplitT = t;
-                goTo(curCurvepts, 2, type);
+                if (clipEnabled && isInvisible(curCurvepts, 0, type)) {
+                    // skip invisible dash segment:
+                    skipSeg(curCurvepts, 0, type);
+                } else {
+                    goTo(curCurvepts, 2, type);
+                }
                 curCurveoff = type;
             }
             // Advance to next dash segment
@@ -340,7 +579,12 @@ final class Dasher implements sun.awt.geom.PathConsumer2D, MarlinConst {
             phase = 0f;
             leftInThisDashSegment = dash[idx];
         }
-        goTo(curCurvepts, curCurveoff+2, type);
+        if (clipEnabled && isInvisible(curCurvepts, curCurveoff, type)) {
+            // skip invisible dash segment:
+            skipSeg(curCurvepts, curCurveoff, type);
+        } else {
+            goTo(curCurvepts, curCurveoff+2, type);
+        }
         phase += li.lastSegLen();
         if (phase >= dash[idx]) {
             phase = 0f;
@@ -351,6 +595,42 @@ final class Dasher implements sun.awt.geom.PathConsumer2D, MarlinConst {
         li.reset();
     }
 
+    // Returns true if the given curve is invisible (control points on the
+    // same outside side of the clip) and can be skipped.
+    // Note: the first dash is not skipped if the subpath start point is
+    // visible to preserve its closing join
+    private boolean isInvisible(final float[] pts, final int off,
+                                final int type)
+    {
+        final int end = off + type;
+        int outcodes = outcode(pts[off], pts[off + 1]);
+
+        for (int i = off + 2; (outcodes != 0) && (i < end); i += 2) {
+            outcodes &= outcode(pts[i], pts[i + 1]);
+        }
+        return (outcodes != 0) && (!starting || endStarting());
+    }
+
+    private void skipCurve(final int type) {
+        final float[] pts = curCurvepts;
+        li.initializeIterationOnCurve(pts, type);
+        li.next(Float.MAX_VALUE);
+        skipLen(li.lastSegLen());
+        // reset LengthIterator:
+        li.reset();
+
+        this.x0 = pts[type - 2];
+        this.y0 = pts[type - 1];
+    }
+
+    // Skip the given (invisible) dash segment: the current dash (if on)
+    // is interrupted
+    private void skipSeg(final float[] pts, final int off, final int type) {
+        needsMoveTo = true;
+        this.x0 = pts[off + type - 2];
+        this.y0 = pts[off + type - 1];
+    }
+
     private static boolean pointCurve(float[] curve, int type) {
         for (int i = 2; i < type; i++) {
             if (curve[i] != curve[i-2]) {
@@ -363,18 +643,23 @@ final class Dasher implements sun.awt.geom.PathConsumer2D, MarlinConst {
     // Objects of this class are used to iterate through curves. They return
     // t values where the left side of the curve has a specified length.
     // It does this by subdividing the input curve until a certain error
-    // condition has been met. A recursive subdivision procedure would
-    // return as many as 1<<limit curves, but this is an iterator and we
-    // don't need all the curves all at once, so what we carry out a
-    // lazy inorder traversal of the recursion tree (meaning we only move
-    // through the tree when we need the next subdivided curve). This saves
-    // us a lot of memory because at any one time we only need to store
+    // condition has been met. The recursion tree is traversed once (inorder)
+    // per curve to build an arc length table (t and cumulative length at
+    // the end of each leaf, at most 1<<limit leaves) so every dash boundary
+    // on the curve is found by a binary search in this table followed by few
+    // Newton iterations inside the leaf. The traversal only stores
     // limit+1 curves - one for each level of the tree + 1.
     // NOTE: the way we do things here is not enough to traverse a general
     // tree; however, the trees we are interested in have the property that
     // every non leaf node has exactly 2 children
     final static class LengthIterator {
         private enum Side {LEFT, RIGHT};
+        // max number of leaves (curve pieces):
+        private static final int MAX_LEAVES = 1 << REC_LIMIT;
+        // max Newton iterations to find t in a leaf:
+        private static final int NEWTON_ITERATIONS = 8;
+        // Newton stops when the length error is below this ratio:
+        private static final float NEWTON_ERR = 1e-5f;
         // Holds the curves at various levels of the recursion. The root
         // (i.e. the original curve) is at recCurveStack[0] (but then it
         // gets subdivided, the left half is put at 1, so most of the time
@@ -384,6 +669,16 @@ final class Dasher implements sun.awt.geom.PathConsumer2D, MarlinConst {
         // the root to the current leaf is a left or right child of its parent.
         private final Side[] sides; // dirty
         private int curveType;
+        // arc length table built once per curve (in-order leaves):
+        // leafTs[i] and leafLens[i] are the t value and the cumulative
+        // length at the end of the leaf i
+        private final float[] leafTs = new float[MAX_LEAVES]; // dirty
+        private final float[] leafLens = new float[MAX_LEAVES]; // dirty
+        // control polygon lengths of each leaf (3 per leaf)
+        private final float[] leafPolyLens = new float[3 * MAX_LEAVES]; // dirty
+        private int nLeaves;
+        // current leaf index
+        private int leafIdx;
         // lastT and nextT delimit the current leaf.
         private float nextT;
         private float lenAtNextT;
@@ -411,7 +706,8 @@ final class Dasher implements sun.awt.geom.PathConsumer2D, MarlinConst {
             this.lenAtLastSplit = Float.MIN_VALUE;
             this.recLevel = Integer.MIN_VALUE;
             this.lastSegLen = Float.MAX_VALUE;
-            this.done = true;
+            this.nLeaves = 0;
+            this.leafIdx = Integer.MIN_VALUE;
         }
 
         /**
@@ -426,8 +722,10 @@ final class Dasher implements sun.awt.geom.PathConsumer2D, MarlinConst {
                     Arrays.fill(recCurveStack[i], 0f);
                 }
                 Arrays.fill(sides, Side.LEFT);
+                Arrays.fill(leafTs, 0f);
+                Arrays.fill(leafLens, 0f);
+                Arrays.fill(leafPolyLens, 0f);
                 Arrays.fill(curLeafCtrlPolyLengths, 0f);
-                Arrays.fill(nextRoots, 0f);
                 Arrays.fill(flatLeafCoefCache, 0f);
                 flatLeafCoefCache[2] = -1f;
             }
@@ -438,23 +736,48 @@ final class Dasher implements sun.awt.geom.PathConsumer2D, MarlinConst {
             System.arraycopy(pts, 0, recCurveStack[0], 0, 8);
             this.curveType = type;
             this.recLevel = 0;
-            this.lastT = 0f;
-            this.lenAtLastT = 0f;
+            this.nLeaves = 0;
             this.nextT = 0f;
             this.lenAtNextT = 0f;
-            goLeft(); // initializes nextT and lenAtNextT properly
-            this.lenAtLastSplit = 0f;
+
+            // build the arc length table by subdividing the curve once:
+            goLeft();
             if (recLevel > 0) {
-                this.sides[0] = Side.LEFT;
+                // the root of the tree is not a leaf:
                 this.done = false;
-            } else {
-                // the root of the tree is a leaf so we're done.
-                this.sides[0] = Side.RIGHT;
-                this.done = true;
+                do {
+                    goToNextLeaf();
+                } while (!done);
             }
+            setLeaf(0);
+
+            this.lenAtLastSplit = 0f;
             this.lastSegLen = 0f;
         }
 
+        // use the given leaf as the current leaf
+        private void setLeaf(final int idx) {
+            this.leafIdx = idx;
+            if (idx == 0) {
+                this.lastT = 0f;
+                this.lenAtLastT = 0f;
+            } else {
+                this.lastT = leafTs[idx - 1];
+                this.lenAtLastT = leafLens[idx - 1];
+            }
+            this.nextT = leafTs[idx];
+            this.lenAtNextT = leafLens[idx];
+
+            final int off = 3 * idx;
+            curLeafCtrlPolyLengths[0] = leafPolyLens[off    ];
+            curLeafCtrlPolyLengths[1] = leafPolyLens[off + 1];
+            curLeafCtrlPolyLengths[2] = leafPolyLens[off + 2];
+
+            // invalidate caches
+            flatLeafCoefCache[2] = -1f;
+            cachedHaveLowAcceleration = -1;
+        }
+
         // 0 == false, 1 == true, -1 == invalid cached value.
         private int cachedHaveLowAcceleration = -1;
 
@@ -488,10 +811,6 @@ final class Dasher implements sun.awt.geom.PathConsumer2D, MarlinConst {
             return (cachedHaveLowAcceleration == 1);
         }
 
-        // we want to avoid allocations/gc so we keep this array so we
-        // can put roots in it,
-        private final float[] nextRoots = new float[4];
-
         // caches the coefficients of the current leaf in its flattened
         // form (see inside next() for what that means). The cache is
         // invalid when it's third element is negative, since in any
@@ -503,19 +822,34 @@ final class Dasher implements sun.awt.geom.PathConsumer2D, MarlinConst {
         // is >= than the length of the uniterated curve, it returns 1.
         float next(final float len) {
             final float targetLength = lenAtLastSplit + len;
-            while (lenAtNextT < targetLength) {
-                if (done) {
-                    lastSegLen = lenAtNextT - lenAtLastSplit;
+            if (lenAtNextT < targetLength) {
+                // binary search of the leaf containing targetLength:
+                final float[] _leafLens = leafLens;
+                int lo = leafIdx + 1;
+                int hi = nLeaves - 1;
+
+                if ((lo > hi) || (_leafLens[hi] < targetLength)) {
+                    // beyond the curve end:
+                    lastSegLen = _leafLens[nLeaves - 1] - lenAtLastSplit;
                     return 1f;
                 }
-                goToNextLeaf();
+                int mid;
+                while (lo < hi) {
+                    mid = (lo + hi) >>> 1;
+                    if (_leafLens[mid] < targetLength) {
+                        lo = mid + 1;
+                    } else {
+                        hi = mid;
+                    }
+                }
+                setLeaf(lo);
             }
             lenAtLastSplit = targetLength;
             final float leaflen = lenAtNextT - lenAtLastT;
             float t = (targetLength - lenAtLastT) / leaflen;
 
-            // cubicRootsInAB is a fairly expensive call, so we just don't do it
-            // if the acceleration in this section of the curve is small enough.
+            // root finding is skipped if the acceleration in this section of
+            // the curve is small enough.
             if (!haveLowAcceleration(0.05f)) {
                 // We flatten the current leaf along the x axis, so that we're
                 // left with a, b, c which define a 1D Bezier curve. We then
@@ -539,27 +873,38 @@ final class Dasher implements sun.awt.geom.PathConsumer2D, MarlinConst {
                         _flatLeafCoefCache[3] = -y;
                     }
                 }
-                float a = _flatLeafCoefCache[0];
-                float b = _flatLeafCoefCache[1];
-                float c = _flatLeafCoefCache[2];
-                float d = t * _flatLeafCoefCache[3];
-
-                // we use cubicRootsInAB here, because we want only roots in 0, 1,
-                // and our quadratic root finder doesn't filter, so it's just a
-                // matter of convenience.
-                int n = Helpers.cubicRootsInAB(a, b, c, d, nextRoots, 0, 0, 1);
-                if (n == 1 && !Float.isNaN(nextRoots[0])) {
-                    t = nextRoots[0];
+                final float a = _flatLeafCoefCache[0];
+                final float b = _flatLeafCoefCache[1];
+                final float c = _flatLeafCoefCache[2];
+                final float d = t * _flatLeafCoefCache[3];
+
+                // The flattened leaf is monotonic in [0, 1] (increasing
+                // control values) so Newton iterations starting from the
+                // linear estimate converge quickly (no cubic root solving):
+                final float maxErr = -NEWTON_ERR * _flatLeafCoefCache[3];
+                float u = t, f, df;
+                for (int i = 0; i < NEWTON_ITERATIONS; i++) {
+                    f  = ((a * u + b) * u + c) * u + d;
+                    df = (3f * a * u + 2f * b) * u + c;
+                    if (!(df > 0f) || (Math.abs(f) < maxErr)) {
+                        break;
+                    }
+                    u -= f / df;
+                    if (u < 0f) {
+                        u = 0f;
+                    } else if (u > 1f) {
+                        u = 1f;
+                    }
                 }
+                t = u;
             }
             // t is relative to the current leaf, so we must make it a valid parameter
             // of the original curve.
             t = t * (nextT - lastT) + lastT;
             if (t >= 1f) {
                 t = 1f;
-                done = true;
             }
-            // even if done = true, if we're here, that means targetLength
+            // even if t = 1, if we're here, that means targetLength
             // is equal to, or very, very close to the total length of the
             // curve, so lastSegLen won't be too high. In cases where len
             // overshoots the curve, this method will exit in the while
@@ -573,6 +918,7 @@ final class Dasher implements sun.awt.geom.PathConsumer2D, MarlinConst {
         }
 
         // go to the next leaf (in an inorder traversal) in the recursion tree
+        // (done is set once all leaves have been visited)
         // preconditions: must be on a leaf, and that leaf must not be the root.
         private void goToNextLeaf() {
             // We must go to the first ancestor node that has an unvisited
@@ -600,17 +946,23 @@ final class Dasher implements sun.awt.geom.PathConsumer2D, MarlinConst {
             goLeft();
         }
 
-        // go to the leftmost node from the current node. Return its length.
+        // go to the leftmost node from the current node and add this leaf
+        // to the arc length table.
         private void goLeft() {
             float len = onLeaf();
             if (len >= 0f) {
-                lastT = nextT;
-                lenAtLastT = lenAtNextT;
                 nextT += (1 << (REC_LIMIT - recLevel)) * MIN_TINCREMENT;
                 lenAtNextT += len;
-                // invalidate caches
-                flatLeafCoefCache[2] = -1f;
-                cachedHaveLowAcceleration = -1;
+
+                final int n = nLeaves;
+                leafTs[n] = nextT;
+                leafLens[n] = lenAtNextT;
+
+                final int off = 3 * n;
+                leafPolyLens[off    ] = curLeafCtrlPolyLengths[0];
+                leafPolyLens[off + 1] = curLeafCtrlPolyLengths[1];
+                leafPolyLens[off + 2] = curLeafCtrlPolyLengths[2];
+                nLeaves = n + 1;
             } else {
                 Helpers.subdivide(recCurveStack[recLevel], 0,
                                   recCurveStack[recLevel+1], 0,
@@ -693,6 +1045,41 @@ final class Dasher implements sun.awt.geom.PathConsumer2D, MarlinConst {
         dispose();
     }
 
+    @Override
+    public void segments(final byte[] types, final int numTypes,
+                         final float[] coords, final int numCoords)
+    {
+        // consume segments (monomorphic calls):
+        int pos = 0;
+        for (int i = 0; i < numTypes; i++) {
+            switch (types[i]) {
+                case PathIterator.SEG_MOVETO:
+                    moveTo(coords[pos], coords[pos + 1]);
+                    pos += 2;
+                    continue;
+                case PathIterator.SEG_LINETO:
+                    lineTo(coords[pos], coords[pos + 1]);
+                    pos += 2;
+                    continue;
+                case PathIterator.SEG_QUADTO:
+                    quadTo(coords[pos],     coords[pos + 1],
+                           coords[pos + 2], coords[pos + 3]);
+                    pos += 4;
+                    continue;
+                case PathIterator.SEG_CUBICTO:
+                    curveTo(coords[pos],     coords[pos + 1],
+                            coords[pos + 2], coords[pos + 3],
+                            coords[pos + 4], coords[pos + 5]);
+                    pos += 6;
+                    continue;
+                case PathIterator.SEG_CLOSE:
+                    closePath();
+                    continue;
+                default:
+            }
+        }
+    }
+
     @Override
     public long getNativeConsumer() {
         throw new InternalError("Dasher does not use a native consumer");
@@ -197,6 +197,17 @@ public final class FloatMath implements MarlinConst {
         return intpart - 1;
     }
 
+    /**
+     * Returns true if the argument is a finite value (neither NaN nor
+     * +/-Infinity) as Float.isFinite() (JDK 8).
+     *
+     * @param a a value.
+     * @return true if the argument is a finite value
+     */
+    static boolean isFinite(final float a) {
+        return Math.abs(a) <= Float.MAX_VALUE;
+    }
+
     /**
      * Returns a floating-point power of two in the normal range.
      */
@@ -0,0 +1,87 @@
+/*
+ * Copyright (c) 2015, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.marlin.pisces;
+
+import sun.java2d.pipe.AATileGenerator;
+
+/**
+ * AATileGenerator extension giving the tile occupancy of the current tile
+ * row so AAShapePipe can skip runs of empty tiles at once and merge
+ * adjacent full tiles into a single (wide) renderPathTile() call.
+ * <p>
+ * Runs never cross the current tile row.
+ */
+public interface MarlinAATileGenerator extends AATileGenerator {
+
+    /**
+     * Gets the number of consecutive tiles having no coverage starting at
+     * the current tile (in the current tile row).
+     * @return number of empty tiles (0 if the current tile is not empty)
+     */
+    public int getEmptyTileRun();
+
+    /**
+     * Gets the number of consecutive tiles completely covered (typical
+     * alpha = 0xff) starting at the current tile (in the current tile row).
+     * @return number of full tiles (0 if the current tile is not full)
+     */
+    public int getFullTileRun();
+
+    /**
+     * Skips the given number of tiles and moves on to the next tile.
+     * It is equivalent to call nextTile() n times.
+     * @param n number of tiles to skip (in the current tile row)
+     */
+    public void nextTiles(int n);
+
+    /**
+     * Gives the coverage spans of all pixel rows in the current tile row to
+     * the given consumer then moves on to the next tile row.
+     * It must be called at the start of a tile row (no tile consumed).
+     * @param consumer span consumer
+     * @return false if there is no more tile row (nothing done)
+     */
+    public boolean nextSpanRow(SpanConsumer consumer);
+
+    /**
+     * Span consumer receiving the coverage of whole pixel rows
+     */
+    public interface SpanConsumer {
+
+        /**
+         * Consumes the coverage values of the pixel row y in [x0; x1[:
+         * the coverage of the pixel x is alphas[offset + x - x0] in [0; 255]
+         * (pixels outside [x0; x1[ have no coverage)
+         * Note: alphas is a shared array valid only during this call
+         *
+         * @param y pixel row
+         * @param x0 first pixel inclusive
+         * @param x1 last pixel exclusive
+         * @param alphas coverage values
+         * @param offset offset of the x0 coverage value in alphas
+         */
+        public void span(int y, int x0, int x1, byte[] alphas, int offset);
+    }
+}
@@ -285,6 +285,46 @@ public final class MarlinCache implements MarlinConst {
         return touchedTile[(x - bboxX0) >> TILE_SIZE_LG];
     }
 
+    /**
+     * Returns the number of consecutive tiles having no coverage starting
+     * at the tile containing x in the current tile line
+     */
+    int emptyTileRun(final int x) {
+        final int tx0 = (x - bboxX0) >> TILE_SIZE_LG;
+        // number of tiles in the tile line:
+        final int txEnd = (bboxX1 - bboxX0 + TILE_SIZE - 1) >> TILE_SIZE_LG;
+
+        // tiles outside [tileMin; tileMax[ are not touched:
+        if (tx0 >= tileMax) {
+            return txEnd - tx0;
+        }
+        int tx = (tx0 < tileMin) ? tileMin : tx0;
+
+        final int[] touchedLine = touchedTile;
+        while ((tx < tileMax) && (touchedLine[tx] == 0)) {
+            tx++;
+        }
+        if (tx >= tileMax) {
+            tx = txEnd;
+        }
+        return tx - tx0;
+    }
+
+    /**
+     * Returns the number of consecutive tiles having the given alpha sum
+     * (full tiles) starting at the tile containing x in the current tile line
+     */
+    int fullTileRun(final int x, final int maxAlphaSum) {
+        final int tx0 = (x - bboxX0) >> TILE_SIZE_LG;
+
+        final int[] touchedLine = touchedTile;
+        int tx = tx0;
+        while ((tx < tileMax) && (touchedLine[tx] == maxAlphaSum)) {
+            tx++;
+        }
+        return tx - tx0;
+    }
+
     @Override
     public String toString() {
         String ret = "bbox = ["
@@ -66,6 +66,22 @@ interface MarlinConst {
     // flag to use line simplifier
     static final boolean USE_SIMPLIFIER = MarlinProperties.isUseSimplifier();
 
+    // default path simplification tolerance (pixels); 0 means disabled
+    static final float SIMPLIFY_TOLERANCE
+        = MarlinProperties.getSimplifyTolerance();
+
+    // flag to merge nearly collinear lines and skip tiny joins in Stroker
+    static final boolean USE_STROKER_COALESCE
+        = MarlinProperties.isUseStrokerCoalesce();
+
+    // flag to skip covered segments of round strokes (Stroker input);
+    // approximate: the coverage of edge pixels may differ slightly
+    static final boolean USE_STROKE_CULLING
+        = MarlinProperties.isUseStrokeCulling();
+
+    // stroked shape cache size (createStrokedShape); 0 means disabled
+    static final int STROKE_CACHE_SIZE = MarlinProperties.getStrokeCacheSize();
+
     // flag to enable logs related bounds checks
     static final boolean DO_LOG_BOUNDS = false;
 
@@ -0,0 +1,248 @@
+/*
+ * Copyright (c) 2015, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.marlin.pisces;
+
+import java.awt.BasicStroke;
+import java.awt.Rectangle;
+import java.awt.Shape;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.PathIterator;
+import java.awt.geom.Point2D;
+import java.awt.geom.Rectangle2D;
+
+/**
+ * Prepared shape wrapping a static shape rendered many times with the same
+ * transform except an integer pixel translation (pan).
+ * <p>
+ * The Marlin renderer caches the edge list (path iteration, normalization,
+ * stroking and curve flattening results) produced for the first rendering
+ * and replays it for following renderings if the transform differs only by
+ * an integer pixel translation and the stroke attributes are the same.
+ * The cached edges are dropped and prepared again otherwise (scale change).
+ * <p>
+ * Other rendering engines (or the non-antialiased pipelines) simply use the
+ * wrapped shape. If the wrapped shape is modified, call {@link #invalidate()}.
+ */
+public final class MarlinPreparedShape implements Shape {
+
+    // wrapped shape
+    private final Shape shape;
+    // cached edges (immutable) or null
+    private volatile Edges edges = null;
+
+    /**
+     * Creates a new prepared shape wrapping the given shape
+     *
+     * @param shape the shape to prepare
+     */
+    public MarlinPreparedShape(final Shape shape) {
+        if (shape == null) {
+            throw new NullPointerException("shape is null");
+        }
+        this.shape = shape;
+    }
+
+    /**
+     * Returns the wrapped shape
+     * @return wrapped shape
+     */
+    public Shape getShape() {
+        return shape;
+    }
+
+    /**
+     * Drops the cached edges (to call when the wrapped shape is modified)
+     */
+    public void invalidate() {
+        edges = null;
+    }
+
+    Edges getEdges() {
+        return edges;
+    }
+
+    void setEdges(final Edges edges) {
+        this.edges = edges;
+    }
+
+    // --- Shape implementation (delegation) ---
+    @Override
+    public Rectangle getBounds() {
+        return shape.getBounds();
+    }
+
+    @Override
+    public Rectangle2D getBounds2D() {
+        return shape.getBounds2D();
+    }
+
+    @Override
+    public boolean contains(final double x, final double y) {
+        return shape.contains(x, y);
+    }
+
+    @Override
+    public boolean contains(final Point2D p) {
+        return shape.contains(p);
+    }
+
+    @Override
+    public boolean intersects(final double x, final double y,
+                              final double w, final double h)
+    {
+        return shape.intersects(x, y, w, h);
+    }
+
+    @Override
+    public boolean intersects(final Rectangle2D r) {
+        return shape.intersects(r);
+    }
+
+    @Override
+    public boolean contains(final double x, final double y,
+                            final double w, final double h)
+    {
+        return shape.contains(x, y, w, h);
+    }
+
+    @Override
+    public boolean contains(final Rectangle2D r) {
+        return shape.contains(r);
+    }
+
+    @Override
+    public PathIterator getPathIterator(final AffineTransform at) {
+        return shape.getPathIterator(at);
+    }
+
+    @Override
+    public PathIterator getPathIterator(final AffineTransform at,
+                                        final double flatness)
+    {
+        return shape.getPathIterator(at, flatness);
+    }
+
+    /**
+     * Immutable edge list recorded by the Renderer for a given transform and
+     * stroke (see Renderer.initRecording)
+     */
+    static final class Edges {
+        // transform used to record edges
+        final double mxx, mxy, myx, myy, mxt, myt;
+        // stroke attributes (null means fill)
+        final BasicStroke stroke;
+        final boolean thin;
+        final boolean normalize;
+        // path simplification tolerance (0 means disabled)
+        final float simplifyTol;
+        // renderer data
+        final int windingRule;
+        final int[] edges;
+        // edge x bounds [minX, maxX] in subpixels
+        final float[] edgeBounds;
+
+        Edges(final AffineTransform at, final BasicStroke stroke,
+              final boolean thin, final boolean normalize,
+              final float simplifyTol, final int windingRule,
+              final int[] edges,
+              final float[] edgeBounds)
+        {
+            if (at == null) {
+                mxx = myy = 1.0;
+                mxy = myx = mxt = myt = 0.0;
+            } else {
+                mxx = at.getScaleX();
+                mxy = at.getShearX();
+                myx = at.getShearY();
+                myy = at.getScaleY();
+                mxt = at.getTranslateX();
+                myt = at.getTranslateY();
+            }
+            this.stroke = stroke;
+            this.thin = thin;
+            this.normalize = normalize;
+            this.simplifyTol = simplifyTol;
+            this.windingRule = windingRule;
+            this.edges = edges;
+            this.edgeBounds = edgeBounds;
+        }
+
+        /**
+         * Returns true if these edges can be replayed with the given
+         * rendering attributes ie the transform only differs by an integer
+         * pixel translation and the clip remains within recording bounds.
+         */
+        boolean isCompatible(final AffineTransform at, final BasicStroke bs,
+                             final boolean thin, final boolean normalize,
+                             final float simplifyTol,
+                             final int clipMinX, final int clipMinY,
+                             final int clipMaxX, final int clipMaxY)
+        {
+            if ((this.thin != thin) || (this.normalize != normalize)
+                || (this.simplifyTol != simplifyTol))
+            {
+                return false;
+            }
+            if ((bs != stroke) && ((bs == null) || !bs.equals(stroke))) {
+                return false;
+            }
+            final double tx, ty;
+            if (at == null) {
+                if (mxx != 1.0 || mxy != 0.0 || myx != 0.0 || myy != 1.0) {
+                    return false;
+                }
+                tx = 0.0;
+                ty = 0.0;
+            } else {
+                if (mxx != at.getScaleX() || mxy != at.getShearX()
+                    || myx != at.getShearY() || myy != at.getScaleY())
+                {
+                    return false;
+                }
+                tx = at.getTranslateX();
+                ty = at.getTranslateY();
+            }
+            final double dx = tx - mxt;
+            final double dy = ty - myt;
+
+            // integer translation only:
+            if ((dx != Math.rint(dx)) || (dy != Math.rint(dy))) {
+                return false;
+            }
+            // clip in recording space must be within recording bounds:
+            final int bound = Renderer.PREPARED_PIXEL_BOUND;
+            return (clipMinX - dx >= -bound) && (clipMaxX - dx <= bound)
+                && (clipMinY - dy >= -bound) && (clipMaxY - dy <= bound);
+        }
+
+        int getOffsetX(final AffineTransform at) {
+            return (at == null) ? (int) -mxt : (int) (at.getTranslateX() - mxt);
+        }
+
+        int getOffsetY(final AffineTransform at) {
+            return (at == null) ? (int) -myt : (int) (at.getTranslateY() - myt);
+        }
+    }
+}
@@ -87,6 +87,33 @@ public final class MarlinProperties {
         return getBoolean("sun.java2d.renderer.useSimplifier", "false");
     }
 
+    /**
+     * Return the default device-space path simplification tolerance
+     *
+     * @return 0 (disabled) <= tolerance in pixels <= 4 (0 by default)
+     */
+    public static float getSimplifyTolerance() {
+        return (float) getDouble("sun.java2d.renderer.simplifyTolerance", 0.0,
+                                 0.0, 4.0);
+    }
+
+    public static boolean isUseStrokerCoalesce() {
+        return getBoolean("sun.java2d.renderer.strokerCoalesce", "true");
+    }
+
+    public static boolean isUseStrokeCulling() {
+        return getBoolean("sun.java2d.renderer.strokeCulling", "false");
+    }
+
+    /**
+     * Return the max number of stroked shapes cached by createStrokedShape()
+     *
+     * @return 0 (disabled) < cache size < 65536 (0 by default)
+     */
+    public static int getStrokeCacheSize() {
+        return getInteger("sun.java2d.renderer.strokeCacheSize", 0, 0, 64 * 1024);
+    }
+
     // debugging parameters
 
     public static boolean isDoStats() {
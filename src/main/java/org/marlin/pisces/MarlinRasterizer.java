@@ -0,0 +1,389 @@
+/*
+ * Copyright (c) 2015, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.marlin.pisces;
+
+import java.awt.BasicStroke;
+import java.awt.Shape;
+import java.awt.geom.AffineTransform;
+import java.util.Arrays;
+
+/**
+ * Standalone antialiased rasterizer rendering shapes directly into pixel
+ * arrays (no Graphics2D, no Java2D pipeline nor surface data):
+ * the shape is rasterized by the Marlin Renderer and the coverage spans
+ * are composited in place (whole pixel rows).
+ * <p>
+ * It also gives the coverage mask of a shape (alpha values) into a byte
+ * array, without any tiling.
+ * <p>
+ * It is thread-safe (renderer contexts are per-thread like Java2D).
+ */
+public final class MarlinRasterizer {
+
+    // private engine instance (independent from the Java2D engine):
+    private static final MarlinRenderingEngine ENGINE
+        = new MarlinRenderingEngine();
+
+    private MarlinRasterizer() {
+        // no-op
+    }
+
+    /**
+     * Renders the given shape (filled or stroked if stroke is not null) with
+     * the given color (SRC_OVER) into the INT_ARGB (non premultiplied)
+     * pixel array: the pixel (x, y) is pixels[offset + y * scanline + x]
+     * with x in [0; width[ and y in [0; height[.
+     * <p>
+     * Strokes are normalized as in Java2D (default stroke control hint).
+     *
+     * @param shape shape to render
+     * @param at transform (user space to pixel space) or null (identity)
+     * @param stroke stroke or null to fill the shape
+     * @param pixels INT_ARGB pixels
+     * @param offset offset of the pixel (0, 0)
+     * @param scanline number of pixels between rows
+     * @param width image width (clip)
+     * @param height image height (clip)
+     * @param argb color (non premultiplied ARGB)
+     * @exception IllegalArgumentException if the pixel rectangle does not
+     *            fit in the pixel array (offset, scanline, width, height)
+     */
+    public static void render(final Shape shape, final AffineTransform at,
+                              final BasicStroke stroke,
+                              final int[] pixels, final int offset,
+                              final int scanline,
+                              final int width, final int height,
+                              final int argb)
+    {
+        if (width <= 0 || height <= 0) {
+            // nothing to render
+            return;
+        }
+        checkRect(pixels.length, offset, scanline, width, height);
+
+        if ((argb >>> 24) == 0) {
+            // nothing to render
+            return;
+        }
+        final int[] bbox = new int[4];
+
+        final MarlinTileGenerator ptg = ENGINE.getTileGenerator(shape, at,
+                0, 0, width, height, stroke, false, (stroke != null), bbox);
+
+        if (ptg == null) {
+            // nothing to render
+            return;
+        }
+        ArgbSpanFiller filler = null;
+        try {
+            final RendererContext rdrCtx = ptg.getRendererContext();
+
+            filler = rdrCtx.argbFiller;
+            if (filler == null) {
+                rdrCtx.argbFiller = filler = new ArgbSpanFiller();
+            }
+            filler.init(pixels, offset, scanline, argb);
+
+            while (ptg.nextSpanRow(filler)) {
+                // composite all pixel rows
+            }
+        } finally {
+            if (filler != null) {
+                filler.dispose();
+            }
+            ptg.dispose();
+        }
+    }
+
+    /**
+     * Checks that the rectangle (width x height values, rows separated by
+     * scanline values from the given offset) fits in an array of the given
+     * length
+     * @exception IllegalArgumentException if it does not fit
+     */
+    private static void checkRect(final int length, final int offset,
+                                  final int scanline,
+                                  final int width, final int height)
+    {
+        if (offset < 0 || scanline < width
+            || offset + (long) (height - 1) * scanline + width > length)
+        {
+            throw new IllegalArgumentException("invalid rectangle: offset = "
+                + offset + " scanline = " + scanline + " width = " + width
+                + " height = " + height + " (array length = " + length + ")");
+        }
+    }
+
+    /**
+     * Renders the coverage mask of the given shape (filled or stroked if
+     * stroke is not null) in the rectangle [x; x + width[ x [y; y + height[
+     * (pixel space) into the given byte array: the coverage of the pixel
+     * (px, py) is mask[offset + (py - y) * scanline + (px - x)] in [0; 255].
+     * All values of the rectangle are written (0 if not covered).
+     * <p>
+     * Strokes are normalized as in Java2D (default stroke control hint).
+     *
+     * @param shape shape to render
+     * @param at transform (user space to pixel space) or null (identity)
+     * @param stroke stroke or null to fill the shape
+     * @param mask coverage values
+     * @param offset offset of the coverage value of the pixel (x, y)
+     * @param scanline number of values between rows
+     * @param x left pixel of the rectangle
+     * @param y top pixel of the rectangle
+     * @param width rectangle width
+     * @param height rectangle height
+     * @return true if any pixel row has coverage; false if the mask is empty
+     */
+    public static boolean renderMask(final Shape shape,
+                                     final AffineTransform at,
+                                     final BasicStroke stroke,
+                                     final byte[] mask, final int offset,
+                                     final int scanline,
+                                     final int x, final int y,
+                                     final int width, final int height)
+    {
+        if (width <= 0 || height <= 0) {
+            // nothing to render
+            return false;
+        }
+        final int[] bbox = new int[4];
+
+        final MarlinTileGenerator ptg = ENGINE.getTileGenerator(shape, at,
+                x, y, x + width, y + height, stroke, false, (stroke != null),
+                bbox);
+
+        if (ptg == null) {
+            MaskSpanFiller.clear(mask, offset, scanline, width, height);
+            return false;
+        }
+        try {
+            final RendererContext rdrCtx = ptg.getRendererContext();
+
+            MaskSpanFiller filler = rdrCtx.maskFiller;
+            if (filler == null) {
+                rdrCtx.maskFiller = filler = new MaskSpanFiller();
+            }
+            filler.init(mask, offset, scanline, x, y, width);
+
+            while (ptg.nextSpanRow(filler)) {
+                // copy all pixel rows
+            }
+            return filler.done(y + height);
+        } finally {
+            ptg.dispose();
+        }
+    }
+
+    /**
+     * Span consumer copying coverage values into a byte mask and clearing
+     * the pixels having no coverage (rows are given in increasing order)
+     */
+    static final class MaskSpanFiller
+        implements MarlinAATileGenerator.SpanConsumer
+    {
+        private byte[] mask;
+        private int offset;
+        private int scanline;
+        // mask rectangle:
+        private int maskX, maskY, width;
+        // next row to write:
+        private int nextY;
+
+        MaskSpanFiller() {}
+
+        MaskSpanFiller init(final byte[] mask, final int offset,
+                            final int scanline, final int x, final int y,
+                            final int width)
+        {
+            this.mask = mask;
+            this.offset = offset;
+            this.scanline = scanline;
+            this.maskX = x;
+            this.maskY = y;
+            this.width = width;
+            this.nextY = y;
+            return this; // fluent API
+        }
+
+        /**
+         * Clears remaining rows and disposes this filler:
+         * clean up before reusing this instance
+         * @param y1 last row (exclusive)
+         * @return true if any row was written (coverage)
+         */
+        boolean done(final int y1) {
+            final boolean covered = (nextY != maskY);
+            clearRows(y1);
+            // do not keep the mask array:
+            this.mask = null;
+            return covered;
+        }
+
+        // clear rows in [nextY; y1[:
+        private void clearRows(final int y1) {
+            if (y1 > nextY) {
+                clear(mask, offset + (nextY - maskY) * scanline, scanline,
+                      width, y1 - nextY);
+                nextY = y1;
+            }
+        }
+
+        @Override
+        public void span(final int y, final int x0, final int x1,
+                         final byte[] alphas, final int off)
+        {
+            clearRows(y);
+
+            final byte[] _mask = mask;
+            final int row = offset + (y - maskY) * scanline;
+            final int from = x0 - maskX;
+            final int to = x1 - maskX;
+
+            if (from > 0) {
+                Arrays.fill(_mask, row, row + from, (byte) 0);
+            }
+            System.arraycopy(alphas, off, _mask, row + from, to - from);
+
+            if (to < width) {
+                Arrays.fill(_mask, row + to, row + width, (byte) 0);
+            }
+            nextY = y + 1;
+        }
+
+        static void clear(final byte[] mask, final int offset,
+                          final int scanline, final int width,
+                          final int height)
+        {
+            for (int i = 0, row = offset; i < height; i++, row += scanline) {
+                Arrays.fill(mask, row, row + width, (byte) 0);
+            }
+        }
+    }
+
+    /**
+     * Span consumer compositing a constant color (SRC_OVER) into INT_ARGB
+     * (non premultiplied) pixels
+     */
+    static final class ArgbSpanFiller
+        implements MarlinAATileGenerator.SpanConsumer
+    {
+        private int[] pixels;
+        private int offset;
+        private int scanline;
+        // color components:
+        private int color;
+        private int srcA, srcR, srcG, srcB;
+
+        ArgbSpanFiller() {}
+
+        ArgbSpanFiller init(final int[] pixels, final int offset,
+                            final int scanline, final int argb)
+        {
+            this.pixels = pixels;
+            this.offset = offset;
+            this.scanline = scanline;
+            this.color = argb;
+            this.srcA = (argb >>> 24);
+            this.srcR = (argb >> 16) & 0xFF;
+            this.srcG = (argb >>  8) & 0xFF;
+            this.srcB = (argb      ) & 0xFF;
+            return this; // fluent API
+        }
+
+        /**
+         * Disposes this filler:
+         * clean up before reusing this instance
+         */
+        void dispose() {
+            // do not keep the pixel array:
+            this.pixels = null;
+        }
+
+        @Override
+        public void span(final int y, final int x0, final int x1,
+                         final byte[] alphas, final int off)
+        {
+            final int[] _pixels = pixels;
+            final int _srcA = srcA;
+            final int _srcR = srcR;
+            final int _srcG = srcG;
+            final int _srcB = srcB;
+
+            int pos = offset + y * scanline + x0;
+            final int delta = off - pos;
+            final int end = pos + (x1 - x0);
+
+            int a, cov, d, dstA, dstF, resA;
+
+            for (; pos < end; pos++) {
+                cov = alphas[pos + delta] & 0xFF;
+                if (cov == 0) {
+                    continue;
+                }
+                // a = cov * srcA / 255:
+                a = mul8(cov, _srcA);
+
+                if (a == 0xFF) {
+                    _pixels[pos] = color;
+                    continue;
+                }
+                if (a == 0) {
+                    continue;
+                }
+                d = _pixels[pos];
+                dstA = (d >>> 24);
+
+                if (dstA == 0xFF) {
+                    // opaque destination:
+                    dstF = 0xFF - a;
+                    _pixels[pos] = 0xFF000000
+                        | div255(_srcR * a + ((d >> 16) & 0xFF) * dstF) << 16
+                        | div255(_srcG * a + ((d >>  8) & 0xFF) * dstF) <<  8
+                        | div255(_srcB * a + ((d      ) & 0xFF) * dstF);
+                } else {
+                    // translucent destination (non premultiplied):
+                    dstF = mul8(dstA, 0xFF - a);
+                    resA = a + dstF;
+                    _pixels[pos] = (resA << 24)
+                        | ((_srcR * a + ((d >> 16) & 0xFF) * dstF) / resA) << 16
+                        | ((_srcG * a + ((d >>  8) & 0xFF) * dstF) / resA) <<  8
+                        | ((_srcB * a + ((d      ) & 0xFF) * dstF) / resA);
+                }
+            }
+        }
+
+        // a * b / 255 (rounded) for a, b in [0; 255]
+        private static int mul8(final int a, final int b) {
+            return div255(a * b);
+        }
+
+        // v / 255 (rounded) for v in [0; 255 * 255]
+        private static int div255(int v) {
+            v += 0x80;
+            return (v + (v >> 8)) >> 8;
+        }
+    }
+}
@@ -45,7 +45,7 @@ import sun.security.action.GetPropertyAction;
 public class MarlinRenderingEngine extends RenderingEngine
                                    implements MarlinConst
 {
-    private static enum NormMode {ON_WITH_AA, ON_NO_AA, OFF}
+    static enum NormMode {ON_WITH_AA, ON_NO_AA, OFF}
 
     private static final float MIN_PEN_SIZE = 1f / NORM_SUBPIXELS;
 
@@ -85,6 +85,39 @@ public class MarlinRenderingEngine extends RenderingEngine
     {
         final RendererContext rdrCtx = getRendererContext();
         try {
+            if (STROKE_CACHE_SIZE > 0) {
+                // use cached (immutable) stroked shape if any:
+                final StrokedShapeCache.Key key = StrokedShapeCache.createKey(
+                    rdrCtx, src, width, caps, join, miterlimit, dashes,
+                    dashphase);
+
+                StrokedPath sp = StrokedShapeCache.get(key);
+                if (sp == null) {
+                    final StrokedPath.Builder spb =
+                        (rdrCtx.spBuilder == null) ?
+                        (rdrCtx.spBuilder = new StrokedPath.Builder())
+                        : rdrCtx.spBuilder;
+
+                    strokeTo(rdrCtx,
+                             src,
+                             null,
+                             width,
+                             NormMode.OFF,
+                             caps,
+                             join,
+                             miterlimit,
+                             dashes,
+                             dashphase,
+                             spb.init()
+                            );
+
+                    // trimmed copy:
+                    sp = spb.build();
+                    StrokedShapeCache.put(key, sp);
+                }
+                return sp;
+            }
+
             // initialize a large copyable Path2D to avoid a lot of array growing:
             final Path2D.Float p2d =
                     (rdrCtx.p2d == null) ?
@@ -116,6 +149,55 @@ public class MarlinRenderingEngine extends RenderingEngine
         }
     }
 
+    /**
+     * Appends the widened paths of all the given shapes to the given
+     * {@code Path2D} (reused buffer) as specified by the given
+     * {@code BasicStroke} (user space, no normalization). The winding rule
+     * of the given path is set to {@code WIND_NON_ZERO} so the resulting
+     * path is the union of all stroked shapes.
+     * <p>
+     * This bulk variant of {@code createStrokedShape()} avoids creating
+     * one shape per source shape (hit testing many paths).
+     *
+     * @param srcs the source paths to be widened
+     * @param bs the {@code BasicStroke} object specifying the
+     *           decorations to be applied to the widened paths
+     * @param dst the {@code Path2D} receiving the widened paths (appended)
+     * @return the given dst path
+     */
+    public Path2D.Float createStrokedShapes(final Shape[] srcs,
+                                            final BasicStroke bs,
+                                            final Path2D.Float dst)
+    {
+        // overlapping stroked shapes must not create holes:
+        dst.setWindingRule(Path2D.WIND_NON_ZERO);
+
+        final RendererContext rdrCtx = getRendererContext();
+        try {
+            final PathConsumer2D pc2d = rdrCtx.transformerPC2D.wrapPath2d(dst);
+
+            for (final Shape src : srcs) {
+                strokeTo(rdrCtx,
+                         src,
+                         null,
+                         bs.getLineWidth(),
+                         NormMode.OFF,
+                         bs.getEndCap(),
+                         bs.getLineJoin(),
+                         bs.getMiterLimit(),
+                         bs.getDashArray(),
+                         bs.getDashPhase(),
+                         pc2d
+                        );
+            }
+            return dst;
+
+        } finally {
+            // recycle the RendererContext instance
+            returnRendererContext(rdrCtx);
+        }
+    }
+
     /**
      * Sends the geometry for a widened path as specified by the parameters
      * to the specified consumer.
@@ -194,6 +276,7 @@ public class MarlinRenderingEngine extends RenderingEngine
                  bs.getMiterLimit(),
                  bs.getDashArray(),
                  bs.getDashPhase(),
+                 USE_STROKER_COALESCE,
                  pc2d);
     }
 
@@ -276,6 +359,28 @@ public class MarlinRenderingEngine extends RenderingEngine
                         float[] dashes,
                         float dashphase,
                         PathConsumer2D pc2d)
+    {
+        strokeTo(rdrCtx, src, at, width, normalize, caps, join, miterlimit,
+                 dashes, dashphase, false, pc2d);
+    }
+
+    /**
+     * Strokes the given shape; if coalesce is true, the output is rendered
+     * in device space so the stroker can merge nearly collinear lines and
+     * skip tiny joins (below Stroker.COALESCE_TOLERANCE in device space)
+     */
+    final void strokeTo(final RendererContext rdrCtx,
+                        Shape src,
+                        AffineTransform at,
+                        float width,
+                        NormMode normalize,
+                        int caps,
+                        int join,
+                        float miterlimit,
+                        float[] dashes,
+                        float dashphase,
+                        final boolean coalesce,
+                        PathConsumer2D pc2d)
     {
         // We use strokerat and outat so that in Stroker and Dasher we can work only
         // with the pre-transformation coordinates. This will repeat a lot of
@@ -295,7 +400,8 @@ public class MarlinRenderingEngine extends RenderingEngine
         AffineTransform strokerat = null;
         AffineTransform outat = null;
 
-        PathIterator pi;
+        // transform applied to the input path (before normalization):
+        AffineTransform inat = null;
         int dashLen = -1;
         boolean recycleDashes = false;
 
@@ -351,8 +457,7 @@ public class MarlinRenderingEngine extends RenderingEngine
                     dashphase = scale * dashphase;
                 }
                 width = scale * width;
-                pi = getNormalizingPathIterator(rdrCtx, normalize,
-                                                src.getPathIterator(at));
+                inat = at;
 
                 // by now strokerat == null && outat == null. Input paths to
                 // stroker (and maybe dasher) will have the full transform at
@@ -360,8 +465,7 @@ public class MarlinRenderingEngine extends RenderingEngine
             } else {
                 if (normalize != NormMode.OFF) {
                     strokerat = at;
-                    pi = getNormalizingPathIterator(rdrCtx, normalize,
-                                                    src.getPathIterator(at));
+                    inat = at;
 
                     // by now strokerat == at && outat == null. Input paths to
                     // stroker (and maybe dasher) will have the full transform at
@@ -377,7 +481,6 @@ public class MarlinRenderingEngine extends RenderingEngine
                     // to stroker's output.
                 } else {
                     outat = at;
-                    pi = src.getPathIterator(null);
                     // outat == at && strokerat == null. This is because if no
                     // normalization is done, we can just apply all our
                     // transformations to stroker's output.
@@ -386,8 +489,27 @@ public class MarlinRenderingEngine extends RenderingEngine
         } else {
             // either at is null or it's the identity. In either case
             // we don't transform the path.
-            pi = getNormalizingPathIterator(rdrCtx, normalize,
-                                            src.getPathIterator(null));
+        }
+
+        if ((dashes != null) && rdrCtx.doClip
+            && (caps == BasicStroke.CAP_SQUARE)
+            && (strokerat == null) && (outat == null))
+        {
+            if (!recycleDashes) {
+                dashLen = dashes.length;
+            }
+            // dash pattern smaller than 1 pixel (device space) while
+            // rendering: square caps extend every dash by the half width at
+            // both ends so gaps shorter than the width are closed: stroke a
+            // solid line instead (round caps leave scallops in the gaps):
+            if ((Dasher.cycleLength(dashes, dashLen) < Dasher.MIN_DASH_CYCLE)
+                && (Dasher.maxGap(dashes, dashLen) < width))
+            {
+                if (recycleDashes && (dashes != rdrCtx.dasher.dashes_initial)) {
+                    rdrCtx.putDirtyFloatArray(dashes);
+                }
+                dashes = null;
+            }
         }
 
         if (USE_SIMPLIFIER) {
@@ -404,24 +526,67 @@ public class MarlinRenderingEngine extends RenderingEngine
         pc2d = transformerPC2D.transformConsumer(pc2d, outat);
         pc2d = transformerPC2D.deltaTransformConsumer(pc2d, strokerat);
 
-        pc2d = rdrCtx.stroker.init(pc2d, width, caps, join, miterlimit);
+        float coalesceTol = 0f;
+        if (coalesce) {
+            // convert the device tolerance into the stroker space:
+            coalesceTol = ((strokerat == null) && (outat == null)) ?
+                          Stroker.COALESCE_TOLERANCE
+                          : userSpaceLineWidth(at, Stroker.COALESCE_TOLERANCE);
+        }
+
+        pc2d = rdrCtx.stroker.init(pc2d, width, caps, join, miterlimit,
+                                   coalesceTol);
+
+        if (USE_STROKE_CULLING && rdrCtx.doClip
+            && (caps == BasicStroke.CAP_ROUND)
+            && (join == BasicStroke.JOIN_ROUND)
+            && (strokerat == null) && (outat == null)
+            && (width >= StrokeCuller.MIN_WIDTH))
+        {
+            // skip segments whose envelope is already covered (device space):
+            pc2d = rdrCtx.culler.init(pc2d, width, rdrCtx.clipRect);
+        }
 
         if (dashes != null) {
             if (!recycleDashes) {
                 dashLen = dashes.length;
             }
-            pc2d = rdrCtx.dasher.init(pc2d, dashes, dashLen, dashphase,
-                                      recycleDashes);
+            final Dasher dasher = rdrCtx.dasher.init(pc2d, dashes, dashLen,
+                                                     dashphase, recycleDashes);
+            // skip invisible dashes if the dasher works in device space or
+            // in user space (no normalization):
+            if (rdrCtx.doClip && (strokerat == null)) {
+                setDasherClip(rdrCtx, dasher, outat, width, caps, join,
+                              miterlimit);
+            }
+            pc2d = dasher;
         }
         pc2d = transformerPC2D.inverseDeltaTransformConsumer(pc2d, strokerat);
-        pathTo(rdrCtx, pi, pc2d);
+
+        if (rdrCtx.simplifyTol > 0f) {
+            float simplifyTol = rdrCtx.simplifyTol;
+            if (outat != null) {
+                // convert the device tolerance into the user space using
+                // the largest scale factor (bounded by the Frobenius norm):
+                final double a = outat.getScaleX();
+                final double b = outat.getShearX();
+                final double c = outat.getShearY();
+                final double d = outat.getScaleY();
+                simplifyTol /= (float) Math.sqrt(a*a + b*b + c*c + d*d);
+            }
+            // simplify the input path (device space or user space if
+            // outat != null) before the dasher and stroker:
+            pc2d = rdrCtx.pathSimplifier.init(pc2d, simplifyTol);
+        }
+        pathTo(rdrCtx, rdrCtx.p2dFeeder.init(src, inat, normalize), pc2d);
 
         /*
          * Pipeline seems to be:
-         *    shape.getPathIterator
-         * -> NormalizingPathIterator
+         *    Path2DFeeder (transform and normalization)
+         * -> CollinearSimplifier (tolerance) if enabled
          * -> inverseDeltaTransformConsumer
          * -> Dasher
+         * -> StrokeCuller (covered round segments) if enabled
          * -> Stroker
          * -> deltaTransformConsumer OR transformConsumer
          *
@@ -431,228 +596,96 @@ public class MarlinRenderingEngine extends RenderingEngine
          */
     }
 
-    private static boolean nearZero(final double num) {
-        return Math.abs(num) < 2.0 * Math.ulp(num);
-    }
-
-    PathIterator getNormalizingPathIterator(final RendererContext rdrCtx,
-                                            final NormMode mode,
-                                            final PathIterator src)
+    /**
+     * Sets the dasher clip rectangle: the device clip enlarged by the stroke
+     * margin (caps and joins) and 1 pixel (normalization and antialiasing)
+     * then converted into the dasher space (user space if outat != null)
+     */
+    private static void setDasherClip(final RendererContext rdrCtx,
+                                      final Dasher dasher,
+                                      final AffineTransform outat,
+                                      final float width,
+                                      final int caps,
+                                      final int join,
+                                      final float miterlimit)
     {
-        switch (mode) {
-            case ON_WITH_AA:
-                // NormalizingPathIterator NearestPixelCenter:
-                return rdrCtx.nPCPathIterator.init(src);
-            case ON_NO_AA:
-                // NearestPixel NormalizingPathIterator:
-                return rdrCtx.nPQPathIterator.init(src);
-            case OFF:
-                // return original path iterator if normalization is disabled:
-                return src;
-            default:
-                throw new InternalError("Unrecognized normalization mode");
-        }
-    }
-
-    static abstract class NormalizingPathIterator implements PathIterator {
-
-        private PathIterator src;
-
-        // the adjustment applied to the current position.
-        private float curx_adjust, cury_adjust;
-        // the adjustment applied to the last moveTo position.
-        private float movx_adjust, movy_adjust;
-
-        private final float[] tmp;
-
-        NormalizingPathIterator(final float[] tmp) {
-            this.tmp = tmp;
-        }
-
-        final NormalizingPathIterator init(final PathIterator src) {
-            this.src = src;
-            return this; // fluent API
-        }
-
-        /**
-         * Disposes this path iterator:
-         * clean up before reusing this instance
-         */
-        final void dispose() {
-            // free source PathIterator:
-            this.src = null;
-        }
-
-        @Override
-        public final int currentSegment(final float[] coords) {
-            if (DO_MONITORS) {
-                RendererContext.stats.mon_npi_currentSegment.start();
-            }
-            int lastCoord;
-            final int type = src.currentSegment(coords);
-
-            switch(type) {
-                case PathIterator.SEG_MOVETO:
-                case PathIterator.SEG_LINETO:
-                    lastCoord = 0;
-                    break;
-                case PathIterator.SEG_QUADTO:
-                    lastCoord = 2;
-                    break;
-                case PathIterator.SEG_CUBICTO:
-                    lastCoord = 4;
-                    break;
-                case PathIterator.SEG_CLOSE:
-                    // we don't want to deal with this case later. We just exit now
-                    curx_adjust = movx_adjust;
-                    cury_adjust = movy_adjust;
-
-                    if (DO_MONITORS) {
-                        RendererContext.stats.mon_npi_currentSegment.stop();
-                    }
-                    return type;
-                default:
-                    throw new InternalError("Unrecognized curve type");
-            }
-
-            // TODO: handle NaN, Inf and overflow
-
-            // normalize endpoint
-            float coord, x_adjust, y_adjust;
-
-            coord = coords[lastCoord];
-            x_adjust = normCoord(coord); // new coord
-            coords[lastCoord] = x_adjust;
-            x_adjust -= coord;
-
-            coord = coords[lastCoord + 1];
-            y_adjust = normCoord(coord); // new coord
-            coords[lastCoord + 1] = y_adjust;
-            y_adjust -= coord;
-
-            // now that the end points are done, normalize the control points
-            switch(type) {
-                case PathIterator.SEG_MOVETO:
-                    movx_adjust = x_adjust;
-                    movy_adjust = y_adjust;
-                    break;
-                case PathIterator.SEG_LINETO:
-                    break;
-                case PathIterator.SEG_QUADTO:
-                    coords[0] += (curx_adjust + x_adjust) / 2f;
-                    coords[1] += (cury_adjust + y_adjust) / 2f;
-                    break;
-                case PathIterator.SEG_CUBICTO:
-                    coords[0] += curx_adjust;
-                    coords[1] += cury_adjust;
-                    coords[2] += x_adjust;
-                    coords[3] += y_adjust;
-                    break;
-                case PathIterator.SEG_CLOSE:
-                    throw new InternalError("This should be handled earlier.");
-                default:
-            }
-            curx_adjust = x_adjust;
-            cury_adjust = y_adjust;
-
-            if (DO_MONITORS) {
-                RendererContext.stats.mon_npi_currentSegment.stop();
-            }
-            return type;
-        }
-
-        abstract float normCoord(final float coord);
-
-        @Override
-        public final int currentSegment(final double[] coords) {
-            final float[] _tmp = tmp; // dirty
-            int type = this.currentSegment(_tmp);
-            for (int i = 0; i < 6; i++) {
-                coords[i] = _tmp[i];
-            }
-            return type;
-        }
-
-        @Override
-        public final int getWindingRule() {
-            return src.getWindingRule();
+        final float[] clipRect = rdrCtx.clipRect;
+
+        // device space:
+        final double minX = clipRect[0] - 1.0;
+        final double minY = clipRect[1] - 1.0;
+        final double maxX = clipRect[2] + 1.0;
+        final double maxY = clipRect[3] + 1.0;
+
+        // stroke margin (dasher space):
+        double margin = 1.0;
+        if (join == BasicStroke.JOIN_MITER) {
+            margin = Math.max(margin, miterlimit);
         }
-
-        @Override
-        public final boolean isDone() {
-            if (src.isDone()) {
-                // Dispose this instance:
-                dispose();
-                return true;
-            }
-            return false;
-        }
-
-        @Override
-        public final void next() {
-            src.next();
+        if (caps == BasicStroke.CAP_SQUARE) {
+            margin = Math.max(margin, Math.sqrt(2.0));
         }
+        margin *= 0.5 * width;
 
-        static final class NearestPixelCenter
-                                extends NormalizingPathIterator
-        {
-            NearestPixelCenter(final float[] tmp) {
-                super(tmp);
-            }
-
-            @Override
-            float normCoord(final float coord) {
-                // round to nearest pixel center
-                return FloatMath.floor_f(coord) + 0.5f;
+        if (outat == null) {
+            dasher.setClipRect((float) (minX - margin), (float) (minY - margin),
+                               (float) (maxX + margin), (float) (maxY + margin));
+        } else {
+            // bounding box of the inverse transformed clip rectangle:
+            final double a = outat.getScaleX();
+            final double b = outat.getShearX();
+            final double c = outat.getShearY();
+            final double d = outat.getScaleY();
+            final double tx = outat.getTranslateX();
+            final double ty = outat.getTranslateY();
+            final double invDet = 1.0 / (a * d - b * c);
+
+            double uMinX = Double.POSITIVE_INFINITY;
+            double uMinY = Double.POSITIVE_INFINITY;
+            double uMaxX = Double.NEGATIVE_INFINITY;
+            double uMaxY = Double.NEGATIVE_INFINITY;
+
+            for (int i = 0; i < 4; i++) {
+                final double dx = (((i & 1) == 0) ? minX : maxX) - tx;
+                final double dy = (((i & 2) == 0) ? minY : maxY) - ty;
+
+                final double ux = (d * dx - b * dy) * invDet;
+                final double uy = (a * dy - c * dx) * invDet;
+
+                if (ux < uMinX) {
+                    uMinX = ux;
+                }
+                if (ux > uMaxX) {
+                    uMaxX = ux;
+                }
+                if (uy < uMinY) {
+                    uMinY = uy;
+                }
+                if (uy > uMaxY) {
+                    uMaxY = uy;
+                }
             }
+            dasher.setClipRect((float) (uMinX - margin), (float) (uMinY - margin),
+                               (float) (uMaxX + margin), (float) (uMaxY + margin));
         }
+    }
 
-        static final class NearestPixelQuarter
-                                extends NormalizingPathIterator
-        {
-            NearestPixelQuarter(final float[] tmp) {
-                super(tmp);
-            }
-
-            @Override
-            float normCoord(final float coord) {
-                // round to nearest (0.25, 0.25) pixel quarter
-                return FloatMath.floor_f(coord + 0.25f) + 0.25f;
-            }
-        }
+    private static boolean nearZero(final double num) {
+        return Math.abs(num) < 2.0 * Math.ulp(num);
     }
 
-    private static void pathTo(final RendererContext rdrCtx, final PathIterator pi,
+    /**
+     * Feeds the path (transformed then normalized by the given feeder) to
+     * the consumer
+     */
+    private static void pathTo(final RendererContext rdrCtx,
+                               final Path2DFeeder feeder,
                                final PathConsumer2D pc2d)
     {
         // mark context as DIRTY:
         rdrCtx.dirty = true;
 
-        final float[] coords = rdrCtx.float6;
-
-        for (; !pi.isDone(); pi.next()) {
-            switch (pi.currentSegment(coords)) {
-                case PathIterator.SEG_MOVETO:
-                    pc2d.moveTo(coords[0], coords[1]);
-                    continue;
-                case PathIterator.SEG_LINETO:
-                    pc2d.lineTo(coords[0], coords[1]);
-                    continue;
-                case PathIterator.SEG_QUADTO:
-                    pc2d.quadTo(coords[0], coords[1],
-                                coords[2], coords[3]);
-                    continue;
-                case PathIterator.SEG_CUBICTO:
-                    pc2d.curveTo(coords[0], coords[1],
-                                 coords[2], coords[3],
-                                 coords[4], coords[5]);
-                    continue;
-                case PathIterator.SEG_CLOSE:
-                    pc2d.closePath();
-                    continue;
-                default:
-            }
-        }
+        feeder.feed(rdrCtx.bulkTypes, rdrCtx.bulkCoords, pc2d);
         pc2d.pathDone();
 
         // mark context as CLEAN:
@@ -714,6 +747,29 @@ public class MarlinRenderingEngine extends RenderingEngine
                                               boolean thin,
                                               boolean normalize,
                                               int[] bbox)
+    {
+        return getTileGenerator(s, at, clip.getLoX(), clip.getLoY(),
+                                clip.getHiX(), clip.getHiY(),
+                                bs, thin, normalize, bbox);
+    }
+
+    /**
+     * Construct an antialiased tile generator for the given shape with
+     * the given rendering attributes and clip rectangle [loX; hiX[ x
+     * [loY; hiY[ and store the bounds of the tile iteration in the bbox
+     * parameter.
+     * @return the tile generator or null if there is nothing to render
+     */
+    final MarlinTileGenerator getTileGenerator(final Shape s,
+                                               final AffineTransform at,
+                                               final int clipLoX,
+                                               final int clipLoY,
+                                               final int clipHiX,
+                                               final int clipHiY,
+                                               final BasicStroke bs,
+                                               final boolean thin,
+                                               final boolean normalize,
+                                               final int[] bbox)
     {
         MarlinTileGenerator ptg = null;
         Renderer r = null;
@@ -726,25 +782,50 @@ public class MarlinRenderingEngine extends RenderingEngine
 
             final NormMode norm = (normalize) ? NormMode.ON_WITH_AA : NormMode.OFF;
 
-            if (bs == null) {
+            // path simplification tolerance (device space):
+            Shape shape = s;
+            rdrCtx.simplifyTol = SIMPLIFY_TOLERANCE;
+            if (shape instanceof MarlinSimplifiedShape) {
+                final MarlinSimplifiedShape ss = (MarlinSimplifiedShape) shape;
+                rdrCtx.simplifyTol = ss.getTolerance();
+                shape = ss.getShape();
+            }
+
+            if (shape instanceof MarlinPreparedShape) {
+                // replay cached edges:
+                r = initPreparedRenderer(rdrCtx, (MarlinPreparedShape) shape,
+                                         _at, clipLoX, clipLoY, clipHiX, clipHiY,
+                                         bs, thin, norm);
+            } else if (bs == null) {
                 // fill shape:
-                final PathIterator pi = getNormalizingPathIterator(rdrCtx, norm,
-                                            s.getPathIterator(_at));
+                final Path2DFeeder feeder
+                    = rdrCtx.p2dFeeder.init(shape, _at, norm);
 
-                r = rdrCtx.renderer.init(clip.getLoX(), clip.getLoY(),
-                                         clip.getWidth(), clip.getHeight(),
-                                         pi.getWindingRule());
+                r = rdrCtx.renderer.init(clipLoX, clipLoY,
+                                         clipHiX - clipLoX, clipHiY - clipLoY,
+                                         feeder.getWindingRule());
 
                 // TODO: subdivide quad/cubic curves into monotonic curves ?
-                pathTo(rdrCtx, pi, r);
+                pathTo(rdrCtx, feeder, simplify(rdrCtx, r));
             } else {
                 // draw shape with given stroke:
-                r = rdrCtx.renderer.init(clip.getLoX(), clip.getLoY(),
-                                         clip.getWidth(), clip.getHeight(),
+                r = rdrCtx.renderer.init(clipLoX, clipLoY,
+                                         clipHiX - clipLoX, clipHiY - clipLoY,
                                          PathIterator.WIND_NON_ZERO);
 
-                strokeTo(rdrCtx, s, _at, bs, thin, norm, true, r);
+                // clip rectangle used to skip invisible dashes:
+                final float[] clipRect = rdrCtx.clipRect;
+                clipRect[0] = clipLoX;
+                clipRect[1] = clipLoY;
+                clipRect[2] = clipHiX;
+                clipRect[3] = clipHiY;
+                rdrCtx.doClip = true;
+
+                strokeTo(rdrCtx, shape, _at, bs, thin, norm, true, r);
+
+                rdrCtx.doClip = false;
             }
+            rdrCtx.simplifyTol = 0f;
             if (r.endRendering()) {
                 ptg = rdrCtx.ptg.init();
                 ptg.getBbox(bbox);
@@ -765,6 +846,88 @@ public class MarlinRenderingEngine extends RenderingEngine
         return ptg;
     }
 
+    /**
+     * Returns the given consumer preceded by the path simplifier if the
+     * simplification is enabled (device space)
+     */
+    private static PathConsumer2D simplify(final RendererContext rdrCtx,
+                                           final PathConsumer2D out)
+    {
+        return (rdrCtx.simplifyTol > 0f) ?
+               rdrCtx.pathSimplifier.init(out, rdrCtx.simplifyTol) : out;
+    }
+
+    /**
+     * Initializes the renderer with the edges cached by the given prepared
+     * shape (and prepare them again if the rendering attributes changed)
+     */
+    private Renderer initPreparedRenderer(final RendererContext rdrCtx,
+                                          final MarlinPreparedShape ps,
+                                          final AffineTransform at,
+                                          final int clipLoX,
+                                          final int clipLoY,
+                                          final int clipHiX,
+                                          final int clipHiY,
+                                          final BasicStroke bs,
+                                          final boolean thin,
+                                          final NormMode norm)
+    {
+        final boolean normalize = (norm != NormMode.OFF);
+
+        // the tolerance of a wrapped simplified shape overrides the given one:
+        Shape shape = ps.getShape();
+        if (shape instanceof MarlinSimplifiedShape) {
+            final MarlinSimplifiedShape ss = (MarlinSimplifiedShape) shape;
+            rdrCtx.simplifyTol = ss.getTolerance();
+            shape = ss.getShape();
+        }
+        final float simplifyTol = rdrCtx.simplifyTol;
+
+        MarlinPreparedShape.Edges pe = ps.getEdges();
+
+        if ((pe == null)
+            || !pe.isCompatible(at, bs, thin, normalize, simplifyTol,
+                                clipLoX, clipLoY, clipHiX, clipHiY))
+        {
+            // record edges in the current device space:
+            final Renderer r = rdrCtx.renderer;
+            final float[] edgeBounds = new float[2];
+            final int windingRule;
+            final int[] edges;
+            try {
+                if (bs == null) {
+                    final Path2DFeeder feeder
+                        = rdrCtx.p2dFeeder.init(shape, at, norm);
+
+                    windingRule = feeder.getWindingRule();
+                    pathTo(rdrCtx, feeder,
+                           simplify(rdrCtx, r.initRecording(windingRule)));
+                } else {
+                    windingRule = PathIterator.WIND_NON_ZERO;
+                    strokeTo(rdrCtx, shape, at, bs, thin, norm, true,
+                             r.initRecording(windingRule));
+                }
+                edges = r.endRecording(edgeBounds);
+            } finally {
+                r.dispose();
+            }
+
+            pe = new MarlinPreparedShape.Edges(at, bs, thin, normalize,
+                                               simplifyTol, windingRule, edges,
+                                               edgeBounds);
+            ps.setEdges(pe);
+        }
+
+        final Renderer r = rdrCtx.renderer.init(clipLoX, clipLoY,
+                                                clipHiX - clipLoX,
+                                                clipHiY - clipLoY,
+                                                pe.windingRule);
+
+        r.addEdges(pe.edges, pe.edges.length, pe.edgeBounds,
+                   pe.getOffsetX(at), pe.getOffsetY(at));
+        return r;
+    }
+
     @Override
     public final AATileGenerator getAATileGenerator(double x, double y,
                                                     double dx1, double dy1,
@@ -773,7 +936,8 @@ public class MarlinRenderingEngine extends RenderingEngine
                                                     Region clip,
                                                     int[] bbox)
     {
-        // REMIND: Deal with large coordinates!
+        // note: large or non-finite coordinates are clipped or ignored by the
+        // Renderer (guard band)
         double ldx1, ldy1, ldx2, ldy2;
         boolean innerpgram = (lw1 > 0.0 && lw2 > 0.0);
 
@@ -964,6 +1128,14 @@ public class MarlinRenderingEngine extends RenderingEngine
         // optimisation parameters
         logInfo("sun.java2d.renderer.useSimplifier    = "
                 + MarlinConst.USE_SIMPLIFIER);
+        logInfo("sun.java2d.renderer.simplifyTolerance = "
+                + MarlinConst.SIMPLIFY_TOLERANCE);
+        logInfo("sun.java2d.renderer.strokeCacheSize  = "
+                + MarlinConst.STROKE_CACHE_SIZE);
+        logInfo("sun.java2d.renderer.strokerCoalesce  = "
+                + MarlinConst.USE_STROKER_COALESCE);
+        logInfo("sun.java2d.renderer.strokeCulling    = "
+                + MarlinConst.USE_STROKE_CULLING);
 
         // debugging parameters
         logInfo("sun.java2d.renderer.doStats          = "
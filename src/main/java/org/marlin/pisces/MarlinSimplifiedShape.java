@@ -0,0 +1,145 @@
+/*
+ * Copyright (c) 2015, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.marlin.pisces;
+
+import java.awt.Rectangle;
+import java.awt.Shape;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.PathIterator;
+import java.awt.geom.Point2D;
+import java.awt.geom.Rectangle2D;
+
+/**
+ * Shape wrapper enabling the device-space path simplification for the
+ * renderings of the wrapped shape (dense polylines like sensor traces or
+ * chart series).
+ * <p>
+ * The Marlin renderer drops the points (and flattens the curves) deviating
+ * less than the given tolerance (in pixels) from the simplified path before
+ * stroking or filling it. A tolerance of 0 disables the simplification (as
+ * the default sun.java2d.renderer.simplifyTolerance setting).
+ * <p>
+ * Other rendering engines (or the non-antialiased pipelines) simply use the
+ * wrapped shape.
+ */
+public final class MarlinSimplifiedShape implements Shape {
+
+    // wrapped shape
+    private final Shape shape;
+    // simplification tolerance in pixels
+    private final float tolerance;
+
+    /**
+     * Creates a new simplified shape wrapping the given shape
+     *
+     * @param shape the shape to simplify
+     * @param tolerance maximum deviation in pixels (sub-pixel values like
+     * 0.25 are recommended) or 0 to disable the simplification
+     */
+    public MarlinSimplifiedShape(final Shape shape, final float tolerance) {
+        if (shape == null) {
+            throw new NullPointerException("shape is null");
+        }
+        if (!(tolerance >= 0f) || !FloatMath.isFinite(tolerance)) {
+            throw new IllegalArgumentException("invalid tolerance: "
+                                               + tolerance);
+        }
+        this.shape = shape;
+        this.tolerance = tolerance;
+    }
+
+    /**
+     * Returns the wrapped shape
+     * @return wrapped shape
+     */
+    public Shape getShape() {
+        return shape;
+    }
+
+    /**
+     * Returns the simplification tolerance in pixels
+     * @return simplification tolerance in pixels
+     */
+    public float getTolerance() {
+        return tolerance;
+    }
+
+    // --- Shape implementation (delegation) ---
+    @Override
+    public Rectangle getBounds() {
+        return shape.getBounds();
+    }
+
+    @Override
+    public Rectangle2D getBounds2D() {
+        return shape.getBounds2D();
+    }
+
+    @Override
+    public boolean contains(final double x, final double y) {
+        return shape.contains(x, y);
+    }
+
+    @Override
+    public boolean contains(final Point2D p) {
+        return shape.contains(p);
+    }
+
+    @Override
+    public boolean intersects(final double x, final double y,
+                              final double w, final double h)
+    {
+        return shape.intersects(x, y, w, h);
+    }
+
+    @Override
+    public boolean intersects(final Rectangle2D r) {
+        return shape.intersects(r);
+    }
+
+    @Override
+    public boolean contains(final double x, final double y,
+                            final double w, final double h)
+    {
+        return shape.contains(x, y, w, h);
+    }
+
+    @Override
+    public boolean contains(final Rectangle2D r) {
+        return shape.contains(r);
+    }
+
+    @Override
+    public PathIterator getPathIterator(final AffineTransform at) {
+        return shape.getPathIterator(at);
+    }
+
+    @Override
+    public PathIterator getPathIterator(final AffineTransform at,
+                                        final double flatness)
+    {
+        return shape.getPathIterator(at, flatness);
+    }
+}
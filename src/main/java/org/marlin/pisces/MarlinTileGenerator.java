@@ -24,9 +24,7 @@
  */
 package org.marlin.pisces;
 
-import sun.java2d.pipe.AATileGenerator;
-
-final class MarlinTileGenerator implements AATileGenerator, MarlinConst {
+final class MarlinTileGenerator implements MarlinAATileGenerator, MarlinConst {
 
     private final static int MAX_TILE_ALPHA_SUM = TILE_SIZE * TILE_SIZE
                                                       * MAX_AA_ALPHA;
@@ -65,6 +63,10 @@ final class MarlinTileGenerator implements AATileGenerator, MarlinConst {
         MarlinRenderingEngine.returnRendererContext(rdr.rdrCtx);
     }
 
+    RendererContext getRendererContext() {
+        return rdr.rdrCtx;
+    }
+
     void getBbox(int[] bbox) {
         bbox[0] = cache.bboxX0;
         bbox[1] = cache.bboxY0;
@@ -149,6 +151,87 @@ final class MarlinTileGenerator implements AATileGenerator, MarlinConst {
         }
     }
 
+    /**
+     * Gets the number of consecutive tiles having no coverage starting at
+     * the current tile (in the current tile row).
+     * @return number of empty tiles (0 if the current tile is not empty)
+     */
+    @Override
+    public int getEmptyTileRun() {
+        return cache.emptyTileRun(x);
+    }
+
+    /**
+     * Gets the number of consecutive tiles completely covered starting at
+     * the current tile (in the current tile row).
+     * @return number of full tiles (0 if the current tile is not full)
+     */
+    @Override
+    public int getFullTileRun() {
+        return cache.fullTileRun(x, MAX_TILE_ALPHA_SUM);
+    }
+
+    /**
+     * Skips the given number of tiles and moves on to the next tile.
+     * @param n number of tiles to skip (in the current tile row)
+     */
+    @Override
+    public void nextTiles(final int n) {
+        if (n > 1) {
+            // stay in the current tile row:
+            x += (n - 1) << TILE_SIZE_LG;
+        }
+        nextTile();
+    }
+
+    /**
+     * Gives the coverage spans of all pixel rows in the current tile row to
+     * the given consumer then moves on to the next tile row (no tile copy).
+     * It must be called at the start of a tile row (no tile consumed).
+     * @param consumer span consumer
+     * @return false if there is no more tile row (nothing done)
+     */
+    @Override
+    public boolean nextSpanRow(final SpanConsumer consumer) {
+        final int y0 = this.y;
+        if (y0 >= cache.bboxY1) {
+            return false;
+        }
+
+        // local vars for performance:
+        final int[] rowAAChunkIndex = cache.rowAAChunkIndex;
+        final int[] rowAAx0 = cache.rowAAx0;
+        final int[] rowAAx1 = cache.rowAAx1;
+        final byte[] rowAAChunk = cache.rowAAChunk;
+
+        final int bboxX0 = cache.bboxX0;
+        final int ny = Math.min(TILE_SIZE, cache.bboxY1 - y0);
+
+        for (int cy = 0; cy < ny; cy++) {
+            final int aax1 = rowAAx1[cy]; // exclusive
+            int aax0 = rowAAx0[cy]; // inclusive
+
+            if (aax1 > aax0) {
+                int pos = rowAAChunkIndex[cy];
+
+                // ensure x0 >= bboxX0:
+                if (aax0 < bboxX0) {
+                    pos += (bboxX0 - aax0);
+                    aax0 = bboxX0;
+                }
+                if (aax1 > aax0) {
+                    consumer.span(y0 + cy, aax0, aax1, rowAAChunk, pos);
+                }
+            }
+        }
+
+        // move on to the next tile row:
+        this.x = cache.bboxX1 - 1;
+        nextTile();
+
+        return true;
+    }
+
     /**
      * Gets the alpha coverage values for the current tile.
      * Either this method, or the nextTile() method should be called
@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) 2007, 2015, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.marlin.pisces;
+
+import org.marlin.geom.Path2D;
+import org.marlin.geom.Path2DBuilder;
+
+/**
+ * Access to the internal arrays of org.marlin.geom.Path2D and Path2DBuilder
+ * (not a copy): the only implementation is a package-private class of
+ * org.marlin.geom obtained once by the Path2DFeeder, so these arrays are not
+ * part of the public path API.
+ * Note: the returned arrays must not be modified
+ */
+public interface Path2DAccess {
+
+    /**
+     * Returns the segment type array (only the first
+     * {@link Path2D#getNumTypes()} values are valid)
+     * @param p2d path
+     * @return segment types (PathIterator.SEG_*)
+     */
+    public byte[] getPointTypesArray(Path2D p2d);
+
+    /**
+     * Returns the coordinate array (only the first
+     * {@link Path2D#getNumCoords()} values are valid)
+     * @param p2d path
+     * @return coordinates
+     */
+    public float[] getFloatCoordsArray(Path2D.Float p2d);
+
+    /**
+     * Returns the coordinate array (only the first
+     * {@link Path2D#getNumCoords()} values are valid)
+     * @param p2d path
+     * @return coordinates
+     */
+    public double[] getDoubleCoordsArray(Path2D.Double p2d);
+
+    /**
+     * Returns the number of chunks of the given builder
+     * @param pb path builder
+     * @return number of chunks
+     */
+    public int getNumChunks(Path2DBuilder pb);
+
+    /**
+     * Returns the segment type array of the given chunk (only the first
+     * {@link #getChunkNumTypes(Path2DBuilder, int)} values are valid)
+     * @param pb path builder
+     * @param i chunk index
+     * @return segment types (PathIterator.SEG_*)
+     */
+    public byte[] getChunkTypes(Path2DBuilder pb, int i);
+
+    /**
+     * Returns the number of segments of the given chunk
+     * @param pb path builder
+     * @param i chunk index
+     * @return number of segments
+     */
+    public int getChunkNumTypes(Path2DBuilder pb, int i);
+
+    /**
+     * Returns the coordinate array of the given chunk (only the first
+     * {@link #getChunkNumCoords(Path2DBuilder, int)} values are valid)
+     * @param pb path builder
+     * @param i chunk index
+     * @return coordinates
+     */
+    public float[] getChunkCoords(Path2DBuilder pb, int i);
+
+    /**
+     * Returns the number of coordinates of the given chunk
+     * @param pb path builder
+     * @param i chunk index
+     * @return number of coordinates
+     */
+    public int getChunkNumCoords(Path2DBuilder pb, int i);
+}
@@ -0,0 +1,624 @@
+/*
+ * Copyright (c) 2007, 2015, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.marlin.pisces;
+
+import java.awt.Shape;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.PathIterator;
+import java.lang.reflect.Constructor;
+import java.nio.ByteBuffer;
+import java.security.AccessController;
+import java.security.PrivilegedAction;
+import org.marlin.geom.MappedPath2D;
+import org.marlin.geom.Path2D;
+import org.marlin.geom.Path2DBuilder;
+import org.marlin.pisces.MarlinRenderingEngine.NormMode;
+import sun.awt.geom.PathConsumer2D;
+
+/**
+ * Fused path source reading the org.marlin.geom.Path2D (or Path2DBuilder
+ * chunk) arrays or the MappedPath2D buffer:
+ * it applies the affine transform (double precision as
+ * AffineTransform.transform) and the normalization in a single pass and
+ * gives the segments to the consumer by batches (BulkPathConsumer2D),
+ * instead of pulling segments from a transforming PathIterator through a
+ * normalizing PathIterator.
+ * Other shapes are read from their own transforming PathIterator (its
+ * precision is kept) and only the normalization is fused.
+ * <p>
+ * The transform is classified once (identity, translation, scale or
+ * general) so every class has its own simple loop.
+ * Float coordinates are given as is (no copy) if there is neither
+ * transform nor normalization and the consumer does not modify them.
+ */
+final class Path2DFeeder {
+
+    // transform classes:
+    private static final int TX_IDENTITY = 0;
+    private static final int TX_TRANSLATE = 1;
+    private static final int TX_SCALE = 2;
+    private static final int TX_GENERAL = 3;
+
+    // Path2D and Path2DBuilder array access (package-private bridge
+    // obtained once):
+    private static final Path2DAccess P2D_ACCESS = getPath2DAccess();
+
+    private static Path2DAccess getPath2DAccess() {
+        return AccessController.doPrivileged(
+            new PrivilegedAction<Path2DAccess>() {
+                @Override
+                public Path2DAccess run() {
+                    try {
+                        final Constructor<?> c = Class.forName(
+                            "org.marlin.geom.Path2DAccessor")
+                            .getDeclaredConstructor();
+                        c.setAccessible(true);
+                        return (Path2DAccess) c.newInstance();
+                    } catch (ReflectiveOperationException roe) {
+                        throw new InternalError(
+                            "Unable to access org.marlin.geom.Path2D arrays: "
+                            + roe);
+                    }
+                }
+            });
+    }
+
+    // source shape:
+    private Shape src;
+    // transformed path iterator (if src is not accepted):
+    private PathIterator srcIterator;
+    // transform:
+    private int txType;
+    private double mxx, mxy, mxt, myx, myy, myt;
+    // normalization:
+    private boolean normalize;
+    private float normBias, normOffset;
+    // the adjustment applied to the current position.
+    private float curx_adjust, cury_adjust;
+    // the adjustment applied to the last moveTo position.
+    private float movx_adjust, movy_adjust;
+    // true to restart the subpath after dropped (non-finite) segments:
+    private boolean restart;
+
+    // segment coordinates (path iterator):
+    private final float[] float6;
+
+    Path2DFeeder(final float[] float6) {
+        // used by RendererContext
+        this.float6 = float6;
+    }
+
+    /**
+     * Returns true if the given shape can be iterated directly
+     * @param s shape
+     * @return true if s is a org.marlin.geom.Path2D, Path2DBuilder or
+     *         MappedPath2D instance
+     */
+    static boolean accept(final Shape s) {
+        return (s instanceof Path2D) || (s instanceof Path2DBuilder)
+            || (s instanceof MappedPath2D);
+    }
+
+    /**
+     * Initializes this feeder to give the given shape transformed by at
+     * then normalized
+     * @param s shape
+     * @param at transform (null means identity)
+     * @param norm normalization mode
+     * @return this instance
+     */
+    Path2DFeeder init(final Shape s, final AffineTransform at,
+                      final NormMode norm)
+    {
+        this.src = s;
+        // other shapes are transformed by their own path iterator (any
+        // precision, as the Java2D pipeline) and only normalized here:
+        this.srcIterator = accept(s) ? null : s.getPathIterator(at);
+
+        if ((at == null) || (srcIterator != null)) {
+            txType = TX_IDENTITY;
+        } else {
+            mxx = at.getScaleX();
+            mxy = at.getShearX();
+            mxt = at.getTranslateX();
+            myx = at.getShearY();
+            myy = at.getScaleY();
+            myt = at.getTranslateY();
+
+            if ((mxy != 0d) || (myx != 0d)) {
+                txType = TX_GENERAL;
+            } else if ((mxx != 1d) || (myy != 1d)) {
+                txType = TX_SCALE;
+            } else if ((mxt != 0d) || (myt != 0d)) {
+                txType = TX_TRANSLATE;
+            } else {
+                txType = TX_IDENTITY;
+            }
+        }
+        switch (norm) {
+            case ON_WITH_AA:
+                // nearest pixel center:
+                normalize = true;
+                normBias = 0f;
+                normOffset = 0.5f;
+                break;
+            case ON_NO_AA:
+                // nearest (0.25, 0.25) pixel quarter:
+                normalize = true;
+                normBias = 0.25f;
+                normOffset = 0.25f;
+                break;
+            case OFF:
+                normalize = false;
+                break;
+            default:
+                throw new InternalError("Unrecognized normalization mode");
+        }
+        curx_adjust = cury_adjust = 0f;
+        movx_adjust = movy_adjust = 0f;
+        restart = false;
+        return this; // fluent API
+    }
+
+    /**
+     * Disposes this feeder:
+     * clean up before reusing this instance
+     */
+    void dispose() {
+        // free source shape and path iterator:
+        src = null;
+        srcIterator = null;
+    }
+
+    /**
+     * Returns the winding rule of the source shape
+     * @return winding rule
+     */
+    int getWindingRule() {
+        final Shape s = src;
+        if (srcIterator != null) {
+            return srcIterator.getWindingRule();
+        }
+        if (s instanceof Path2D) {
+            return ((Path2D) s).getWindingRule();
+        }
+        return (s instanceof Path2DBuilder)
+               ? ((Path2DBuilder) s).getWindingRule()
+               : ((MappedPath2D) s).getWindingRule();
+    }
+
+    /**
+     * Gives all path segments to the given consumer (pathDone() excluded)
+     * by batches packed into the given buffers then disposes this feeder
+     * @param types segment type buffer
+     * @param points coordinate buffer (6 times larger than types)
+     * @param out consumer
+     */
+    void feed(final byte[] types, final float[] points,
+              final PathConsumer2D out)
+    {
+        final BulkPathConsumer2D bulkOut
+            = TransformingPathConsumer2D.bulkConsumer(out);
+
+        final Shape s = src;
+
+        if (srcIterator != null) {
+            feed(srcIterator, types, points, out, bulkOut);
+        } else if (s instanceof Path2DBuilder) {
+            final Path2DBuilder pb = (Path2DBuilder) s;
+            final Path2DAccess access = P2D_ACCESS;
+
+            for (int i = 0, n = access.getNumChunks(pb); i < n; i++) {
+                feed(access.getChunkTypes(pb, i),
+                     access.getChunkNumTypes(pb, i),
+                     access.getChunkCoords(pb, i), null,
+                     access.getChunkNumCoords(pb, i),
+                     types, points, out, bulkOut);
+            }
+        } else if (s instanceof MappedPath2D) {
+            final MappedPath2D mp = (MappedPath2D) s;
+
+            feed(mp.getBuffer(), mp.getTypesOffset(), mp.getNumTypes(),
+                 mp.getCoordsOffset(), types, points, out, bulkOut);
+        } else {
+            final Path2D p2d = (Path2D) s;
+
+            // note: numTypes first as arrays may be grown later:
+            final int numTypes = p2d.getNumTypes();
+            final int numCoords = p2d.getNumCoords();
+            final byte[] srcTypes = P2D_ACCESS.getPointTypesArray(p2d);
+
+            if (p2d instanceof Path2D.Float) {
+                feed(srcTypes, numTypes,
+                     P2D_ACCESS.getFloatCoordsArray((Path2D.Float) p2d), null,
+                     numCoords, types, points, out, bulkOut);
+            } else {
+                feed(srcTypes, numTypes,
+                     null, P2D_ACCESS.getDoubleCoordsArray((Path2D.Double) p2d),
+                     numCoords, types, points, out, bulkOut);
+            }
+        }
+        dispose();
+    }
+
+    private void feed(final byte[] srcTypes, final int numTypes,
+                      final float[] floatCoords, final double[] doubleCoords,
+                      final int numCoords,
+                      final byte[] types, final float[] points,
+                      final PathConsumer2D out,
+                      final BulkPathConsumer2D bulkOut)
+    {
+        if ((txType == TX_IDENTITY) && !normalize && (floatCoords != null)
+            && isReadOnly(out) && isFinite(floatCoords, numCoords))
+        {
+            // zero copy: give the path arrays at once
+            bulkOut.segments(srcTypes, numTypes, floatCoords, numCoords);
+            return;
+        }
+
+        final int maxTypes = types.length;
+        final boolean _normalize = normalize;
+
+        int nt = 0, nc = 0, pos = 0, n;
+        byte type;
+
+        for (int i = 0; i < numTypes; i++) {
+            type = srcTypes[i];
+            switch (type) {
+                case PathIterator.SEG_MOVETO:
+                case PathIterator.SEG_LINETO:
+                    n = 2;
+                    break;
+                case PathIterator.SEG_QUADTO:
+                    n = 4;
+                    break;
+                case PathIterator.SEG_CUBICTO:
+                    n = 6;
+                    break;
+                case PathIterator.SEG_CLOSE:
+                    n = 0;
+                    break;
+                default:
+                    throw new InternalError("Unrecognized curve type");
+            }
+            if (n != 0) {
+                if (floatCoords != null) {
+                    load(floatCoords, pos, points, nc, n);
+                } else {
+                    load(doubleCoords, pos, points, nc, n);
+                }
+                pos += n;
+                type = (byte) filter(type, points, nc, n);
+                if (type < 0) {
+                    continue;
+                }
+                nc += (type == PathIterator.SEG_MOVETO) ? 2 : n;
+            } else if (_normalize) {
+                curx_adjust = movx_adjust;
+                cury_adjust = movy_adjust;
+            }
+            types[nt++] = type;
+
+            if (nt == maxTypes) {
+                TransformingPathConsumer2D.segmentsTo(out, bulkOut,
+                                                      types, nt, points, nc);
+                nt = 0;
+                nc = 0;
+            }
+        }
+        if (nt != 0) {
+            TransformingPathConsumer2D.segmentsTo(out, bulkOut,
+                                                  types, nt, points, nc);
+        }
+    }
+
+    // same as feed(arrays) reading the buffer (absolute accessors):
+    private void feed(final ByteBuffer buf, final int typesOffset,
+                      final int numTypes, final int coordsOffset,
+                      final byte[] types, final float[] points,
+                      final PathConsumer2D out,
+                      final BulkPathConsumer2D bulkOut)
+    {
+        final int maxTypes = types.length;
+        final boolean _normalize = normalize;
+        final boolean _identity = (txType == TX_IDENTITY);
+
+        int nt = 0, nc = 0, pos = coordsOffset, n;
+        byte type;
+
+        for (int i = 0; i < numTypes; i++) {
+            type = buf.get(typesOffset + i);
+            switch (type) {
+                case PathIterator.SEG_MOVETO:
+                case PathIterator.SEG_LINETO:
+                    n = 2;
+                    break;
+                case PathIterator.SEG_QUADTO:
+                    n = 4;
+                    break;
+                case PathIterator.SEG_CUBICTO:
+                    n = 6;
+                    break;
+                case PathIterator.SEG_CLOSE:
+                    n = 0;
+                    break;
+                default:
+                    throw new InternalError("Unrecognized curve type");
+            }
+            if (n != 0) {
+                for (int k = 0; k < n; k++, pos += 4) {
+                    points[nc + k] = buf.getFloat(pos);
+                }
+                if (!_identity) {
+                    // transform in place:
+                    load(points, nc, points, nc, n);
+                }
+                type = (byte) filter(type, points, nc, n);
+                if (type < 0) {
+                    continue;
+                }
+                nc += (type == PathIterator.SEG_MOVETO) ? 2 : n;
+            } else if (_normalize) {
+                curx_adjust = movx_adjust;
+                cury_adjust = movy_adjust;
+            }
+            types[nt++] = type;
+
+            if (nt == maxTypes) {
+                TransformingPathConsumer2D.segmentsTo(out, bulkOut,
+                                                      types, nt, points, nc);
+                nt = 0;
+                nc = 0;
+            }
+        }
+        if (nt != 0) {
+            TransformingPathConsumer2D.segmentsTo(out, bulkOut,
+                                                  types, nt, points, nc);
+        }
+    }
+
+    // same as feed(arrays) pulling segments from the transformed iterator
+    private void feed(final PathIterator pi,
+                      final byte[] types, final float[] points,
+                      final PathConsumer2D out,
+                      final BulkPathConsumer2D bulkOut)
+    {
+        final int maxTypes = types.length;
+        final boolean _normalize = normalize;
+        final float[] coords = float6;
+
+        int nt = 0, nc = 0, n, type;
+
+        for (; !pi.isDone(); pi.next()) {
+            type = pi.currentSegment(coords);
+            switch (type) {
+                case PathIterator.SEG_MOVETO:
+                case PathIterator.SEG_LINETO:
+                    n = 2;
+                    break;
+                case PathIterator.SEG_QUADTO:
+                    n = 4;
+                    break;
+                case PathIterator.SEG_CUBICTO:
+                    n = 6;
+                    break;
+                case PathIterator.SEG_CLOSE:
+                    n = 0;
+                    break;
+                default:
+                    continue;
+            }
+            if (n != 0) {
+                // already transformed (TX_IDENTITY):
+                load(coords, 0, points, nc, n);
+                type = filter(type, points, nc, n);
+                if (type < 0) {
+                    continue;
+                }
+                nc += (type == PathIterator.SEG_MOVETO) ? 2 : n;
+            } else if (_normalize) {
+                curx_adjust = movx_adjust;
+                cury_adjust = movy_adjust;
+            }
+            types[nt++] = (byte) type;
+
+            if (nt == maxTypes) {
+                TransformingPathConsumer2D.segmentsTo(out, bulkOut,
+                                                      types, nt, points, nc);
+                nt = 0;
+                nc = 0;
+            }
+        }
+        if (nt != 0) {
+            TransformingPathConsumer2D.segmentsTo(out, bulkOut,
+                                                  types, nt, points, nc);
+        }
+    }
+
+    /**
+     * Checks then normalizes the given segment coordinates: non-finite
+     * segments (NaN, Infinity or transform overflow) are dropped and the
+     * next valid end point starts a new subpath (moveTo)
+     * @param type segment type
+     * @param coords segment coordinates
+     * @param off offset in coords
+     * @param n number of coordinates
+     * @return the segment type to give or -1 to drop it
+     */
+    private int filter(final int type, final float[] coords, final int off,
+                       int n)
+    {
+        for (int k = off, end = off + n; k < end; k++) {
+            if (!FloatMath.isFinite(coords[k])) {
+                restart = true;
+                return -1;
+            }
+        }
+        int t = type;
+        if (restart) {
+            restart = false;
+            if (t != PathIterator.SEG_MOVETO) {
+                // restart the subpath at the segment end point:
+                coords[off    ] = coords[off + n - 2];
+                coords[off + 1] = coords[off + n - 1];
+                n = 2;
+                t = PathIterator.SEG_MOVETO;
+            }
+        }
+        if (normalize) {
+            normalize(t, coords, off, n);
+        }
+        return t;
+    }
+
+    private static boolean isFinite(final float[] coords, final int n) {
+        for (int k = 0; k < n; k++) {
+            if (!FloatMath.isFinite(coords[k])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // consumers never modifying the given coordinates:
+    private static boolean isReadOnly(final PathConsumer2D out) {
+        return (out instanceof Renderer) || (out instanceof Stroker)
+            || (out instanceof Dasher);
+    }
+
+    // copy (and transform) n coordinates from src[pos] into dst[off]
+    // (src and dst may be the same array)
+    private void load(final float[] src, final int pos,
+                      final float[] dst, final int off, final int n)
+    {
+        double x, y;
+        switch (txType) {
+            case TX_IDENTITY:
+                for (int k = 0; k < n; k++) {
+                    dst[off + k] = src[pos + k];
+                }
+                return;
+            case TX_TRANSLATE:
+                for (int k = 0; k < n; k += 2) {
+                    dst[off + k    ] = (float) (src[pos + k    ] + mxt);
+                    dst[off + k + 1] = (float) (src[pos + k + 1] + myt);
+                }
+                return;
+            case TX_SCALE:
+                for (int k = 0; k < n; k += 2) {
+                    dst[off + k    ] = (float) (src[pos + k    ] * mxx + mxt);
+                    dst[off + k + 1] = (float) (src[pos + k + 1] * myy + myt);
+                }
+                return;
+            default:
+                for (int k = 0; k < n; k += 2) {
+                    x = src[pos + k];
+                    y = src[pos + k + 1];
+                    dst[off + k    ] = (float) (mxx * x + mxy * y + mxt);
+                    dst[off + k + 1] = (float) (myx * x + myy * y + myt);
+                }
+        }
+    }
+
+    // copy (and transform) n coordinates from src[pos] into dst[off]
+    private void load(final double[] src, final int pos,
+                      final float[] dst, final int off, final int n)
+    {
+        double x, y;
+        switch (txType) {
+            case TX_IDENTITY:
+                for (int k = 0; k < n; k++) {
+                    dst[off + k] = (float) src[pos + k];
+                }
+                return;
+            case TX_TRANSLATE:
+                for (int k = 0; k < n; k += 2) {
+                    dst[off + k    ] = (float) (src[pos + k    ] + mxt);
+                    dst[off + k + 1] = (float) (src[pos + k + 1] + myt);
+                }
+                return;
+            case TX_SCALE:
+                for (int k = 0; k < n; k += 2) {
+                    dst[off + k    ] = (float) (src[pos + k    ] * mxx + mxt);
+                    dst[off + k + 1] = (float) (src[pos + k + 1] * myy + myt);
+                }
+                return;
+            default:
+                for (int k = 0; k < n; k += 2) {
+                    x = src[pos + k];
+                    y = src[pos + k + 1];
+                    dst[off + k    ] = (float) (mxx * x + mxy * y + mxt);
+                    dst[off + k + 1] = (float) (myx * x + myy * y + myt);
+                }
+        }
+    }
+
+    // normalize the segment end point then its control points:
+    private void normalize(final int type, final float[] coords,
+                           final int off, final int n)
+    {
+        final int lastCoord = off + n - 2;
+
+        // normalize endpoint
+        float coord, x_adjust, y_adjust;
+
+        coord = coords[lastCoord];
+        x_adjust = normCoord(coord); // new coord
+        coords[lastCoord] = x_adjust;
+        x_adjust -= coord;
+
+        coord = coords[lastCoord + 1];
+        y_adjust = normCoord(coord); // new coord
+        coords[lastCoord + 1] = y_adjust;
+        y_adjust -= coord;
+
+        // now that the end points are done, normalize the control points
+        switch (type) {
+            case PathIterator.SEG_MOVETO:
+                movx_adjust = x_adjust;
+                movy_adjust = y_adjust;
+                break;
+            case PathIterator.SEG_LINETO:
+                break;
+            case PathIterator.SEG_QUADTO:
+                coords[off    ] += (curx_adjust + x_adjust) / 2f;
+                coords[off + 1] += (cury_adjust + y_adjust) / 2f;
+                break;
+            case PathIterator.SEG_CUBICTO:
+                coords[off    ] += curx_adjust;
+                coords[off + 1] += cury_adjust;
+                coords[off + 2] += x_adjust;
+                coords[off + 3] += y_adjust;
+                break;
+            default:
+        }
+        curx_adjust = x_adjust;
+        cury_adjust = y_adjust;
+    }
+
+    private float normCoord(final float coord) {
+        return FloatMath.floor_f(coord + normBias) + normOffset;
+    }
+}
@@ -24,11 +24,12 @@
  */
 package org.marlin.pisces;
 
+import java.awt.geom.PathIterator;
 import java.util.Arrays;
 
 import sun.awt.geom.PathConsumer2D;
 
-final class Renderer implements PathConsumer2D, MarlinConst {
+final class Renderer implements BulkPathConsumer2D, MarlinConst {
 
     final static boolean DISABLE_RENDER = false;
 
@@ -52,6 +53,18 @@ final class Renderer implements PathConsumer2D, MarlinConst {
     static final int INITIAL_BUCKET_ARRAY
         = INITIAL_PIXEL_DIM * SUBPIXEL_POSITIONS_Y;
 
+    // recording bounds for prepared shapes (pixels) = 1M pixels
+    // note: subpixel coordinates must fit in 28 bits (256 subpixels)
+    static final int PREPARED_PIXEL_BOUND = 1 << 20;
+
+    // guard band margin around the bounds (pixels): larger coordinates are
+    // clipped before addLine() and the curve breakers
+    // note: recorded subpixel coordinates still fit in 29 bits
+    static final int GUARD_BAND = 1 << 16;
+
+    // max subdivision level of curves crossing the guard band
+    private static final int GUARD_MAX_LEVEL = 32;
+
     public static final int WIND_EVEN_ODD = 0;
     public static final int WIND_NON_ZERO = 1;
 
@@ -443,29 +456,178 @@ final class Renderer implements PathConsumer2D, MarlinConst {
         _edges[ptr + OFF_BUMP_X]      = (int) (slope_fixed >> 32L);
         _edges[ptr + OFF_BUMP_ERR]    = ((int)  slope_fixed) >>> 1;
 
+        if (recording) {
+            // prepared edges: store the first crossing instead of the
+            // bucket link (buckets are built when edges are replayed)
+            _edges[ptr + OFF_NEXT ]   = firstCrossing;
+            // last bit corresponds to the orientation
+            _edges[ptr + OFF_YMAX_OR] = (lastCrossing << 1) | or;
+        } else {
+            // copy members:
+            final int[] _edgeBuckets      = edgeBuckets;
+            final int[] _edgeBucketCounts = edgeBucketCounts;
+
+            // each bucket is a linked list. this method adds ptr to the
+            // start of the "bucket"th linked list.
+            final int bucketIdx = firstCrossing - _boundsMinY;
+
+            // pointer from bucket
+            _edges[ptr + OFF_NEXT ]       = _edgeBuckets[bucketIdx];
+            // last bit corresponds to the orientation
+            _edges[ptr + OFF_YMAX_OR]     = (lastCrossing << 1) | or;
+
+            // Update buckets:
+            // directly the edge struct "pointer"
+            _edgeBuckets[bucketIdx]       = ptr;
+            _edgeBucketCounts[bucketIdx] += 2; // 1 << 1
+            // last bit means edge end
+            _edgeBucketCounts[lastCrossing - _boundsMinY] |= 0x1;
+        }
+
+        // update free pointer (ie length in ints)
+        edgesPos += _SIZEOF_EDGE;
+
+        if (DO_MONITORS) {
+            RendererContext.stats.mon_rdr_addLine.stop();
+        }
+    }
+
+    /**
+     * Adds the given prepared edges (see initRecording) translated by the
+     * given integer pixel offsets: edges are clipped to the current y bounds
+     * and linked into the edge buckets without any addLine() computation.
+     *
+     * @param pEdges prepared edges (OFF_NEXT holds the first crossing)
+     * @param pEdgesLen number of used ints in pEdges
+     * @param pEdgeBounds edge bounds [minX, maxX] in subpixels
+     * @param pix_dx x offset in pixels
+     * @param pix_dy y offset in pixels
+     */
+    void addEdges(final int[] pEdges, final int pEdgesLen,
+                  final float[] pEdgeBounds,
+                  final int pix_dx, final int pix_dy)
+    {
+        if (DO_MONITORS) {
+            RendererContext.stats.mon_rdr_addLine.start();
+        }
+        // integer translation in subpixels:
+        final int dx = pix_dx << SUBPIXEL_LG_POSITIONS_X;
+        final int dy = pix_dy << SUBPIXEL_LG_POSITIONS_Y;
+
+        final int _boundsMinY = boundsMinY;
+        final int _boundsMaxY = boundsMaxY;
+
+        // local variables for performance:
+        final int _SIZEOF_EDGE = SIZEOF_EDGE;
+        final int _ERR_STEP_MAX = ERR_STEP_MAX;
+
+        int ptr = edgesPos;
+
+        int[] _edges = edges;
+
+        if (_edges.length < ptr + pEdgesLen) {
+            if (DO_STATS) {
+                RendererContext.stats.stat_rdr_edges_resizes
+                    .add(ptr + pEdgesLen);
+            }
+            edges = _edges = rdrCtx.widenDirtyIntArray(_edges, ptr,
+                                                       ptr + pEdgesLen);
+        }
+
         // copy members:
         final int[] _edgeBuckets      = edgeBuckets;
         final int[] _edgeBucketCounts = edgeBucketCounts;
 
-        // each bucket is a linked list. this method adds ptr to the
-        // start of the "bucket"th linked list.
-        final int bucketIdx = firstCrossing - _boundsMinY;
+        int minY = Integer.MAX_VALUE;
+        int maxY = Integer.MIN_VALUE;
 
-        // pointer from bucket
-        _edges[ptr + OFF_NEXT ]       = _edgeBuckets[bucketIdx];
-        // last bit corresponds to the orientation
-        _edges[ptr + OFF_YMAX_OR]     = (lastCrossing << 1) | or;
+        int firstCrossing, lastCrossing, ymax_or, bucketIdx, skip;
+        int curx, err, bumpx, bumperr;
+        long x_fixed;
 
-        // Update buckets:
-        // directly the edge struct "pointer"
-        _edgeBuckets[bucketIdx]       = ptr;
-        _edgeBucketCounts[bucketIdx] += 2; // 1 << 1
-        // last bit means edge end
-        _edgeBucketCounts[lastCrossing - _boundsMinY] |= 0x1;
+        for (int i = 0; i < pEdgesLen; i += _SIZEOF_EDGE) {
+            ymax_or = pEdges[i + OFF_YMAX_OR];
 
-        // update free pointer (ie length in ints)
-        edgesPos += _SIZEOF_EDGE;
+            firstCrossing = pEdges[i + OFF_NEXT] + dy;
+            lastCrossing  = Math.min((ymax_or >> 1) + dy, _boundsMaxY);
+
+            skip = 0;
+            if (firstCrossing < _boundsMinY) {
+                skip = _boundsMinY - firstCrossing;
+                firstCrossing = _boundsMinY;
+            }
+            // clip edges out of y range [boundsMinY; boundsMaxY]
+            if (firstCrossing >= lastCrossing) {
+                continue;
+            }
+
+            curx    = pEdges[i /* + OFF_CURX */] + dx;
+            err     = pEdges[i + OFF_ERROR];
+            bumpx   = pEdges[i + OFF_BUMP_X];
+            bumperr = pEdges[i + OFF_BUMP_ERR];
+
+            if (skip != 0) {
+                // advance the DDA by skip scanlines at once (fixed point 33.31):
+                x_fixed = (((long) curx) << 31L) + err
+                          + skip * ((((long) bumpx) << 31L) + bumperr);
+
+                curx = (int) (x_fixed >> 31L);
+                err  = ((int) x_fixed) & _ERR_STEP_MAX;
+            }
 
+            _edges[ptr /* + OFF_CURX */] = curx;
+            _edges[ptr + OFF_ERROR]      = err;
+            _edges[ptr + OFF_BUMP_X]     = bumpx;
+            _edges[ptr + OFF_BUMP_ERR]   = bumperr;
+
+            // each bucket is a linked list. this method adds ptr to the
+            // start of the "bucket"th linked list.
+            bucketIdx = firstCrossing - _boundsMinY;
+
+            // pointer from bucket
+            _edges[ptr + OFF_NEXT ]       = _edgeBuckets[bucketIdx];
+            // last bit corresponds to the orientation
+            _edges[ptr + OFF_YMAX_OR]     = (lastCrossing << 1)
+                                            | (ymax_or & 0x1);
+
+            // Update buckets:
+            // directly the edge struct "pointer"
+            _edgeBuckets[bucketIdx]       = ptr;
+            _edgeBucketCounts[bucketIdx] += 2; // 1 << 1
+            // last bit means edge end
+            _edgeBucketCounts[lastCrossing - _boundsMinY] |= 0x1;
+
+            if (firstCrossing < minY) {
+                minY = firstCrossing;
+            }
+            if (lastCrossing > maxY) {
+                maxY = lastCrossing;
+            }
+            ptr += _SIZEOF_EDGE;
+        }
+
+        if (ptr != edgesPos) {
+            // update free pointer (ie length in ints)
+            edgesPos = ptr;
+
+            // edge min/max X/Y are in subpixel space (inclusive)
+            // ceil(edgeMinY) = minY and ceil(edgeMaxY) = maxY:
+            if (minY < edgeMinY) {
+                edgeMinY = minY;
+            }
+            if (maxY > edgeMaxY) {
+                edgeMaxY = maxY;
+            }
+            // conservative x bounds (float precision):
+            final float minX = (float) (Math.floor(pEdgeBounds[0]) + dx - 1.0);
+            final float maxX = (float) (Math.ceil(pEdgeBounds[1])  + dx + 1.0);
+            if (minX < edgeMinX) {
+                edgeMinX = minX;
+            }
+            if (maxX > edgeMaxX) {
+                edgeMaxX = maxX;
+            }
+        }
         if (DO_MONITORS) {
             RendererContext.stats.mon_rdr_addLine.stop();
         }
@@ -483,12 +645,20 @@ final class Renderer implements PathConsumer2D, MarlinConst {
     // Current winding rule
     private int windingRule;
 
+    // true if edges are recorded (prepared shape) instead of rendered
+    private boolean recording;
+
     // Current drawing position, i.e., final point of last segment
     private float x0, y0;
 
     // Position of most recent 'moveTo' command
     private float pix_sx0, pix_sy0;
 
+    // Guard band (subpixels): bounds enlarged by GUARD_BAND pixels
+    private float guardMinX, guardMinY, guardMaxX, guardMaxY;
+    // curve subdivision stack (guard band clipping): 16 floats per level
+    private final float[] guardCurves = new float[(GUARD_MAX_LEVEL + 1) * 16];
+
     // per-thread renderer context
     final RendererContext rdrCtx;
     // dirty curve
@@ -522,6 +692,7 @@ final class Renderer implements PathConsumer2D, MarlinConst {
                   final int windingRule) {
 
         this.windingRule = windingRule;
+        this.recording = false;
 
         // bounds as half-open intervals: minX <= x < maxX and minY <= y < maxY
         this.boundsMinX =  pix_boundsX << SUBPIXEL_LG_POSITIONS_X;
@@ -531,6 +702,8 @@ final class Renderer implements PathConsumer2D, MarlinConst {
         this.boundsMaxY =
             (pix_boundsY + pix_boundsHeight) << SUBPIXEL_LG_POSITIONS_Y;
 
+        setGuardBand();
+
         if (DO_LOG_BOUNDS) {
             MarlinUtils.logInfo("boundsXY = [" + boundsMinX + " ... "
                                 + boundsMaxX + "[ [" + boundsMinY + " ... "
@@ -565,10 +738,65 @@ final class Renderer implements PathConsumer2D, MarlinConst {
         return this; // fluent API
     }
 
+    /**
+     * Initializes this renderer to record edges (prepared shape) instead of
+     * rendering them: edges are only clipped to the recording bounds
+     * [-PREPARED_PIXEL_BOUND; PREPARED_PIXEL_BOUND[ on the y-axis.
+     *
+     * @param windingRule winding rule
+     * @return this instance
+     */
+    Renderer initRecording(final int windingRule) {
+
+        this.windingRule = windingRule;
+        this.recording = true;
+
+        this.boundsMinX = -PREPARED_PIXEL_BOUND << SUBPIXEL_LG_POSITIONS_X;
+        this.boundsMaxX =  PREPARED_PIXEL_BOUND << SUBPIXEL_LG_POSITIONS_X;
+        this.boundsMinY = -PREPARED_PIXEL_BOUND << SUBPIXEL_LG_POSITIONS_Y;
+        this.boundsMaxY =  PREPARED_PIXEL_BOUND << SUBPIXEL_LG_POSITIONS_Y;
+
+        setGuardBand();
+
+        edgeMinY = Float.POSITIVE_INFINITY;
+        edgeMaxY = Float.NEGATIVE_INFINITY;
+        edgeMinX = Float.POSITIVE_INFINITY;
+        edgeMaxX = Float.NEGATIVE_INFINITY;
+
+        // reset used mark:
+        edgeCount = 0;
+        activeEdgeMaxUsed = 0;
+        edgesPos = 0;
+
+        return this; // fluent API
+    }
+
+    /**
+     * Returns a trimmed copy of the recorded edges and their x bounds
+     * (subpixels).
+     * Note: dispose() must still be called to recycle this renderer.
+     *
+     * @param edgeBounds returned edge bounds [minX, maxX] in subpixels
+     * @return recorded edges
+     */
+    int[] endRecording(final float[] edgeBounds) {
+        final int[] recorded = Arrays.copyOf(edges, edgesPos);
+
+        edgeBounds[0] = edgeMinX;
+        edgeBounds[1] = edgeMaxX;
+
+        return recorded;
+    }
+
     /**
      * Disposes this renderer and recycle it clean up before reusing this instance
      */
     void dispose() {
+        if (recording) {
+            // buckets were not used:
+            edgeMinY = Float.POSITIVE_INFINITY;
+            recording = false;
+        }
         if (DO_STATS) {
             RendererContext.stats.stat_rdr_activeEdges.add(activeEdgeMaxUsed);
             RendererContext.stats.stat_rdr_edges.add(edgesPos);
@@ -648,20 +876,45 @@ final class Renderer implements PathConsumer2D, MarlinConst {
         return f_SUBPIXEL_POSITIONS_Y * pix_y - 0.5f;
     }
 
+    private void setGuardBand() {
+        this.guardMinX = boundsMinX - (GUARD_BAND << SUBPIXEL_LG_POSITIONS_X);
+        this.guardMaxX = boundsMaxX + (GUARD_BAND << SUBPIXEL_LG_POSITIONS_X);
+        this.guardMinY = boundsMinY - (GUARD_BAND << SUBPIXEL_LG_POSITIONS_Y);
+        this.guardMaxY = boundsMaxY + (GUARD_BAND << SUBPIXEL_LG_POSITIONS_Y);
+    }
+
+    // false if outside the guard band or NaN:
+    private boolean inGuardBand(final float x, final float y) {
+        return (x >= guardMinX) && (x <= guardMaxX)
+            && (y >= guardMinY) && (y <= guardMaxY);
+    }
+
     @Override
     public void moveTo(float pix_x0, float pix_y0) {
         closePath();
-        this.pix_sx0 = pix_x0;
-        this.pix_sy0 = pix_y0;
-        this.y0 = tosubpixy(pix_y0);
-        this.x0 = tosubpixx(pix_x0);
+        final float x = tosubpixx(pix_x0);
+        final float y = tosubpixy(pix_y0);
+        // ignore non-finite (or overflowing) points:
+        if (FloatMath.isFinite(x) && FloatMath.isFinite(y)) {
+            this.pix_sx0 = pix_x0;
+            this.pix_sy0 = pix_y0;
+            this.y0 = y;
+            this.x0 = x;
+        }
     }
 
     @Override
     public void lineTo(float pix_x1, float pix_y1) {
         float x1 = tosubpixx(pix_x1);
         float y1 = tosubpixy(pix_y1);
-        addLine(x0, y0, x1, y1);
+        if (inGuardBand(x0, y0) && inGuardBand(x1, y1)) {
+            addLine(x0, y0, x1, y1);
+        } else if (FloatMath.isFinite(x1) && FloatMath.isFinite(y1)) {
+            clipLine(x0, y0, x1, y1);
+        } else {
+            // ignore non-finite points:
+            return;
+        }
         x0 = x1;
         y0 = y1;
     }
@@ -673,9 +926,27 @@ final class Renderer implements PathConsumer2D, MarlinConst {
     {
         final float xe = tosubpixx(x3);
         final float ye = tosubpixy(y3);
-        curve.set(x0, y0, tosubpixx(x1), tosubpixy(y1),
-                          tosubpixx(x2), tosubpixy(y2), xe, ye);
-        curveBreakIntoLinesAndAdd(x0, y0, curve, xe, ye);
+        final float xc1 = tosubpixx(x1);
+        final float yc1 = tosubpixy(y1);
+        final float xc2 = tosubpixx(x2);
+        final float yc2 = tosubpixy(y2);
+
+        if (inGuardBand(x0, y0) && inGuardBand(xc1, yc1)
+            && inGuardBand(xc2, yc2) && inGuardBand(xe, ye))
+        {
+            curve.set(x0, y0, xc1, yc1, xc2, yc2, xe, ye);
+            curveBreakIntoLinesAndAdd(x0, y0, curve, xe, ye);
+        } else if (FloatMath.isFinite(xe) && FloatMath.isFinite(ye)) {
+            final float[] c = guardCurves;
+            c[0] = x0;  c[1] = y0;
+            c[2] = xc1; c[3] = yc1;
+            c[4] = xc2; c[5] = yc2;
+            c[6] = xe;  c[7] = ye;
+            clipCurve(c, 0, 8, 0);
+        } else {
+            // ignore non-finite points:
+            return;
+        }
         x0 = xe;
         y0 = ye;
     }
@@ -684,12 +955,161 @@ final class Renderer implements PathConsumer2D, MarlinConst {
     public void quadTo(float x1, float y1, float x2, float y2) {
         final float xe = tosubpixx(x2);
         final float ye = tosubpixy(y2);
-        curve.set(x0, y0, tosubpixx(x1), tosubpixy(y1), xe, ye);
-        quadBreakIntoLinesAndAdd(x0, y0, curve, xe, ye);
+        final float xc = tosubpixx(x1);
+        final float yc = tosubpixy(y1);
+
+        if (inGuardBand(x0, y0) && inGuardBand(xc, yc)
+            && inGuardBand(xe, ye))
+        {
+            curve.set(x0, y0, xc, yc, xe, ye);
+            quadBreakIntoLinesAndAdd(x0, y0, curve, xe, ye);
+        } else if (FloatMath.isFinite(xe) && FloatMath.isFinite(ye)) {
+            final float[] c = guardCurves;
+            c[0] = x0; c[1] = y0;
+            c[2] = xc; c[3] = yc;
+            c[4] = xe; c[5] = ye;
+            clipCurve(c, 0, 6, 0);
+        } else {
+            // ignore non-finite points:
+            return;
+        }
         x0 = xe;
         y0 = ye;
     }
 
+    /**
+     * Adds the given curve (subpixels) crossing the guard band: it is
+     * subdivided until its parts are either inside the guard band (broken
+     * into lines) or outside (replaced by a clipped line)
+     *
+     * @param c curve subdivision stack (see guardCurves)
+     * @param off curve offset in c
+     * @param type curve type (number of coordinates: 6 or 8)
+     * @param level subdivision level
+     */
+    private void clipCurve(final float[] c, final int off, final int type,
+                           final int level)
+    {
+        float minX = c[off], maxX = minX, minY = c[off + 1], maxY = minY, v;
+        boolean finite = true;
+
+        for (int i = off + 2, end = off + type; i < end; i += 2) {
+            v = c[i];
+            finite &= FloatMath.isFinite(v);
+            if (v < minX) { minX = v; } else if (v > maxX) { maxX = v; }
+            v = c[i + 1];
+            finite &= FloatMath.isFinite(v);
+            if (v < minY) { minY = v; } else if (v > maxY) { maxY = v; }
+        }
+        final int last = off + type - 2;
+
+        if (!finite || (level == GUARD_MAX_LEVEL)
+            || (maxX < guardMinX) || (minX > guardMaxX)
+            || (maxY < guardMinY) || (minY > guardMaxY))
+        {
+            // outside (same crossings as the line joining its end points):
+            clipLine(c[off], c[off + 1], c[last], c[last + 1]);
+        } else if ((minX >= guardMinX) && (maxX <= guardMaxX)
+                   && (minY >= guardMinY) && (maxY <= guardMaxY))
+        {
+            // inside:
+            if (type == 8) {
+                curve.set(c[off],     c[off + 1], c[off + 2], c[off + 3],
+                          c[off + 4], c[off + 5], c[off + 6], c[off + 7]);
+                curveBreakIntoLinesAndAdd(c[off], c[off + 1], curve,
+                                          c[last], c[last + 1]);
+            } else {
+                curve.set(c[off],     c[off + 1], c[off + 2], c[off + 3],
+                          c[off + 4], c[off + 5]);
+                quadBreakIntoLinesAndAdd(c[off], c[off + 1], curve,
+                                         c[last], c[last + 1]);
+            }
+        } else {
+            // left and right halves on the next level:
+            final int sub = (level + 1) << 4;
+            Helpers.subdivide(c, off, c, sub, c, sub + 8, type);
+            clipCurve(c, sub,     type, level + 1);
+            clipCurve(c, sub + 8, type, level + 1);
+        }
+    }
+
+    /**
+     * Adds the given line (subpixels) clipped to the guard band:
+     * parts above or below are skipped and parts on the left or on the right
+     * are replaced by vertical lines on the guard band edge (same crossings
+     * within the bounds)
+     */
+    private void clipLine(final float x1, final float y1,
+                          final float x2, final float y2)
+    {
+        final double gMinY = guardMinY;
+        final double gMaxY = guardMaxY;
+
+        double ax = x1, ay = y1, bx = x2, by = y2;
+
+        if (((ay < gMinY) && (by < gMinY)) || ((ay > gMaxY) && (by > gMaxY))) {
+            return;
+        }
+        // clip y (interpolate x):
+        if (ay < gMinY) {
+            ax = lerp(ax, ay, bx, by, gMinY);
+            ay = gMinY;
+        } else if (ay > gMaxY) {
+            ax = lerp(ax, ay, bx, by, gMaxY);
+            ay = gMaxY;
+        }
+        if (by < gMinY) {
+            bx = lerp(ax, ay, bx, by, gMinY);
+            by = gMinY;
+        } else if (by > gMaxY) {
+            bx = lerp(ax, ay, bx, by, gMaxY);
+            by = gMaxY;
+        }
+
+        // split at the left and right edges (in line order) then clamp x:
+        double e1 = guardMinX, e2 = guardMaxX;
+        if (bx < ax) {
+            e1 = guardMaxX;
+            e2 = guardMinX;
+        }
+        double px = ax, py = ay, qy;
+
+        if ((e1 - ax) * (e1 - bx) < 0.0) {
+            qy = lerp(ay, ax, by, bx, e1);
+            addClampedLine(px, py, e1, qy);
+            px = e1;
+            py = qy;
+        }
+        if ((e2 - ax) * (e2 - bx) < 0.0) {
+            qy = lerp(ay, ax, by, bx, e2);
+            addClampedLine(px, py, e2, qy);
+            px = e2;
+            py = qy;
+        }
+        addClampedLine(px, py, bx, by);
+    }
+
+    // returns a at v on the line [(a1, v1), (a2, v2)] (v1 != v2):
+    // weighted form avoiding cancellation with very large values
+    private static double lerp(final double a1, final double v1,
+                               final double a2, final double v2,
+                               final double v)
+    {
+        return (a1 * (v2 - v) + a2 * (v - v1)) / (v2 - v1);
+    }
+
+    private void addClampedLine(final double x1, final double y1,
+                                final double x2, final double y2)
+    {
+        final double gMinX = guardMinX;
+        final double gMaxX = guardMaxX;
+
+        addLine((float) ((x1 < gMinX) ? gMinX : (x1 > gMaxX) ? gMaxX : x1),
+                (float) y1,
+                (float) ((x2 < gMinX) ? gMinX : (x2 > gMaxX) ? gMaxX : x2),
+                (float) y2);
+    }
+
     @Override
     public void closePath() {
         // lineTo expects its input in pixel coordinates.
@@ -701,6 +1121,41 @@ final class Renderer implements PathConsumer2D, MarlinConst {
         closePath();
     }
 
+    @Override
+    public void segments(final byte[] types, final int numTypes,
+                         final float[] coords, final int numCoords)
+    {
+        // consume segments (monomorphic calls):
+        int pos = 0;
+        for (int i = 0; i < numTypes; i++) {
+            switch (types[i]) {
+                case PathIterator.SEG_MOVETO:
+                    moveTo(coords[pos], coords[pos + 1]);
+                    pos += 2;
+                    continue;
+                case PathIterator.SEG_LINETO:
+                    lineTo(coords[pos], coords[pos + 1]);
+                    pos += 2;
+                    continue;
+                case PathIterator.SEG_QUADTO:
+                    quadTo(coords[pos],     coords[pos + 1],
+                           coords[pos + 2], coords[pos + 3]);
+                    pos += 4;
+                    continue;
+                case PathIterator.SEG_CUBICTO:
+                    curveTo(coords[pos],     coords[pos + 1],
+                            coords[pos + 2], coords[pos + 3],
+                            coords[pos + 4], coords[pos + 5]);
+                    pos += 6;
+                    continue;
+                case PathIterator.SEG_CLOSE:
+                    closePath();
+                    continue;
+                default:
+            }
+        }
+    }
+
     @Override
     public long getNativeConsumer() {
         throw new InternalError("Renderer does not use a native consumer.");
@@ -29,7 +29,6 @@ import java.lang.ref.WeakReference;
 import java.util.concurrent.atomic.AtomicInteger;
 import org.marlin.geom.Path2D;
 import static org.marlin.pisces.ArrayCache.*;
-import org.marlin.pisces.MarlinRenderingEngine.NormalizingPathIterator;
 import static org.marlin.pisces.MarlinUtils.getCallerInfo;
 import static org.marlin.pisces.MarlinUtils.logInfo;
 
@@ -77,21 +76,35 @@ final class RendererContext implements MarlinConst {
     ArrayCachesHolder hardRefArrayCaches = null;
     // shared data
     final float[] float6 = new float[6];
+    // bulk segment buffers (pathTo):
+    final byte[] bulkTypes = new byte[BulkPathConsumer2D.MAX_SEGMENTS];
+    final float[] bulkCoords = new float[BulkPathConsumer2D.MAX_SEGMENTS * 6];
+    // path source (transform and normalization) (pathTo):
+    final Path2DFeeder p2dFeeder = new Path2DFeeder(float6);
+    // clip rectangle (device space) [minX, minY, maxX, maxY] if doClip
+    boolean doClip = false;
+    final float[] clipRect = new float[4];
+    // path simplification tolerance (device space) if > 0
+    float simplifyTol = 0f;
     // shared curve (dirty) (Renderer / Stroker)
     final Curve curve = new Curve();
-    // MarlinRenderingEngine NormalizingPathIterator NearestPixelCenter:
-    final NormalizingPathIterator nPCPathIterator;
-    // MarlinRenderingEngine NearestPixelQuarter NormalizingPathIterator:
-    final NormalizingPathIterator nPQPathIterator;
     // MarlinRenderingEngine.TransformingPathConsumer2D
     final TransformingPathConsumer2D transformerPC2D;
     // recycled Path2D instance
     Path2D.Float p2d = null;
+    // recycled StrokedPath builder (stroke cache)
+    StrokedPath.Builder spBuilder = null;
+    // recycled span consumers (MarlinRasterizer)
+    MarlinRasterizer.ArgbSpanFiller argbFiller = null;
+    MarlinRasterizer.MaskSpanFiller maskFiller = null;
     final Renderer renderer;
     final Stroker stroker;
     // Simplifies out collinear lines
     final CollinearSimplifier simplifier = new CollinearSimplifier();
+    // Simplifies paths within a tolerance (before Stroker or Renderer)
+    final CollinearSimplifier pathSimplifier = new CollinearSimplifier();
     final Dasher dasher;
+    final StrokeCuller culler;
     final MarlinTileGenerator ptg;
     final MarlinCache cache;
 
@@ -107,10 +120,6 @@ final class RendererContext implements MarlinConst {
 
         this.name = name;
 
-        // NormalizingPathIterator instances:
-        nPCPathIterator = new NormalizingPathIterator.NearestPixelCenter(float6);
-        nPQPathIterator  = new NormalizingPathIterator.NearestPixelQuarter(float6);
-
         // MarlinRenderingEngine.TransformingPathConsumer2D
         transformerPC2D = new TransformingPathConsumer2D();
 
@@ -121,6 +130,7 @@ final class RendererContext implements MarlinConst {
 
         stroker = new Stroker(this);
         dasher = new Dasher(this);
+        culler = new StrokeCuller(this);
 
         // Create the reference to this instance (hard, soft or weak):
         switch (MarlinRenderingEngine.REF_TYPE) {
@@ -146,16 +156,21 @@ final class RendererContext implements MarlinConst {
         if (!USE_CACHE_HARD_REF) {
             hardRefArrayCaches = null;
         }
+        // reset clip:
+        doClip = false;
+        // reset simplification:
+        simplifyTol = 0f;
         // if context is maked as DIRTY:
         if (dirty) {
             // may happen if an exception if thrown in the pipeline processing:
             // force cleanup of all possible pipelined blocks (except Renderer):
 
-            // NormalizingPathIterator instances:
-            this.nPCPathIterator.dispose();
-            this.nPQPathIterator.dispose();
+            // path source:
+            this.p2dFeeder.dispose();
             // Dasher:
             this.dasher.dispose();
+            // StrokeCuller:
+            this.culler.dispose();
             // Stroker:
             this.stroker.dispose();
 
@@ -0,0 +1,507 @@
+/*
+ * Copyright (c) 2007, 2015, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.marlin.pisces;
+
+import java.awt.geom.PathIterator;
+import sun.awt.geom.PathConsumer2D;
+
+/**
+ * The <code>StrokeCuller</code> class skips the line segments given to the
+ * <code>Stroker</code> whose stroke envelope is already fully covered by
+ * the segments emitted before (round caps and joins only, device space).
+ *
+ * <p> With round caps and joins, the stroked path is the union of the
+ * capsules (segments enlarged by the half line width) so a covered segment
+ * is dropped: the next visible segment starts a new subpath whose round
+ * cap is covered too. The coverage is tracked in a bitmap of cells over the
+ * clip rectangle: a cell is marked once it is fully inside an emitted
+ * capsule and a segment is covered if all cells touching its capsule are
+ * marked (cells outside the clip are invisible).
+ *
+ * <p> This mode is approximate: splitting subpaths replaces round joins by
+ * round caps and changes the outline given to the <code>Renderer</code>,
+ * so the coverage of edge pixels may differ from the unculled stroke
+ * (up to about 30 / 255 on dense round scribbles). It is disabled by
+ * default and meant for previews or dense pen traces where speed matters
+ * more than pixel identical output.
+ *
+ * <p> It reduces the overlapping edges (crossings per scanline) processed
+ * by the <code>Renderer</code> for dense pen traces drawn with a thick pen.
+ */
+final class StrokeCuller implements BulkPathConsumer2D, MarlinConst {
+
+    // minimum line width (device space) to cull segments: thinner capsules
+    // can hardly cover cells
+    final static float MIN_WIDTH = 4f;
+
+    // margin (pixels) for the round joins and caps approximated by cubic
+    // curves (it does not make the culled output identical)
+    private final static float MARGIN = 0.125f;
+
+    private final static float HALF_SQRT_2 = (float) (0.5 * Math.sqrt(2.0));
+
+    private PathConsumer2D out;
+
+    // capsule radius of cells touching the segment envelope:
+    private float testRadius;
+    // capsule radius of cells fully inside the segment envelope:
+    private float markRadius;
+
+    // cell grid (clip rectangle):
+    private float gridX, gridY;
+    private float cellSize, invCellSize;
+    private int cols, rows, wordsPerRow;
+    // coverage bitmap (clean array) and marked rows [minRow, maxRow]:
+    private int[] bits;
+    private int minRow, maxRow;
+
+    // current segment (span):
+    private float sax, say, svx, svy, sox, soy, sr2;
+    // row span [spanMin, spanMax]:
+    private float spanMin, spanMax;
+
+    // subpath start and current point:
+    private float sx0, sy0, cx0, cy0;
+    // true if the next visible segment needs a moveTo:
+    private boolean needsMoveTo;
+    // true if a segment was skipped in the current subpath:
+    private boolean culled;
+
+    // per-thread renderer context
+    final RendererContext rdrCtx;
+
+    /**
+     * Constructs a <code>StrokeCuller</code>.
+     * @param rdrCtx per-thread renderer context
+     */
+    StrokeCuller(final RendererContext rdrCtx) {
+        this.rdrCtx = rdrCtx;
+    }
+
+    /**
+     * Initialize the <code>StrokeCuller</code>.
+     *
+     * @param out the Stroker (round caps and joins)
+     * @param width the line width (device space)
+     * @param clipRect the clip rectangle [minX, minY, maxX, maxY]
+     * @return this instance
+     */
+    StrokeCuller init(final PathConsumer2D out, final float width,
+                      final float[] clipRect)
+    {
+        this.out = out;
+
+        final int clipW = (int) (clipRect[2] - clipRect[0]);
+        final int clipH = (int) (clipRect[3] - clipRect[1]);
+
+        // use larger cells if the bitmap exceeds the array cache:
+        int shift = 0;
+        int c, r;
+        for (;;) {
+            c = (clipW + (1 << shift) - 1) >> shift;
+            r = (clipH + (1 << shift) - 1) >> shift;
+            if ((long) r * ((c + 31) >> 5) <= ArrayCache.MAX_ARRAY_SIZE) {
+                break;
+            }
+            shift++;
+        }
+        this.gridX = clipRect[0];
+        this.gridY = clipRect[1];
+        this.cellSize = 1 << shift;
+        this.invCellSize = 1f / cellSize;
+        this.cols = Math.max(c, 0);
+        this.rows = Math.max(r, 0);
+        this.wordsPerRow = (cols + 31) >> 5;
+
+        final float cellRadius = cellSize * HALF_SQRT_2;
+        this.testRadius = 0.5f * width + cellRadius + MARGIN;
+        this.markRadius = 0.5f * width - cellRadius - MARGIN;
+
+        if ((rows != 0) && (wordsPerRow != 0)) {
+            bits = rdrCtx.getIntArray(rows * wordsPerRow);
+        }
+        minRow = Integer.MAX_VALUE;
+        maxRow = -1;
+
+        needsMoveTo = false;
+        culled = false;
+
+        return this; // fluent API
+    }
+
+    /**
+     * Disposes this culler:
+     * clean up before reusing this instance
+     */
+    void dispose() {
+        if (bits != null) {
+            // clear only marked rows:
+            if (minRow <= maxRow) {
+                rdrCtx.putIntArray(bits, minRow * wordsPerRow,
+                                   (maxRow + 1) * wordsPerRow);
+            } else {
+                rdrCtx.putIntArray(bits, 0, 0); // already zero filled
+            }
+            bits = null;
+        }
+    }
+
+    @Override
+    public void moveTo(final float x0, final float y0) {
+        out.moveTo(x0, y0);
+        sx0 = cx0 = x0;
+        sy0 = cy0 = y0;
+        needsMoveTo = false;
+        culled = false;
+    }
+
+    @Override
+    public void lineTo(final float x1, final float y1) {
+        if (isCovered(cx0, cy0, x1, y1)) {
+            // skip this segment:
+            needsMoveTo = true;
+            culled = true;
+        } else {
+            if (needsMoveTo) {
+                out.moveTo(cx0, cy0);
+                needsMoveTo = false;
+            }
+            out.lineTo(x1, y1);
+            mark(cx0, cy0, x1, y1);
+        }
+        cx0 = x1;
+        cy0 = y1;
+    }
+
+    @Override
+    public void quadTo(final float x1, final float y1,
+                       final float x2, final float y2)
+    {
+        if (needsMoveTo) {
+            out.moveTo(cx0, cy0);
+            needsMoveTo = false;
+        }
+        // curves are emitted (not marked):
+        out.quadTo(x1, y1, x2, y2);
+        cx0 = x2;
+        cy0 = y2;
+    }
+
+    @Override
+    public void curveTo(final float x1, final float y1,
+                        final float x2, final float y2,
+                        final float x3, final float y3)
+    {
+        if (needsMoveTo) {
+            out.moveTo(cx0, cy0);
+            needsMoveTo = false;
+        }
+        // curves are emitted (not marked):
+        out.curveTo(x1, y1, x2, y2, x3, y3);
+        cx0 = x3;
+        cy0 = y3;
+    }
+
+    @Override
+    public void closePath() {
+        if (culled) {
+            // the subpath is split: draw the closing segment as an open
+            // line (round caps cover the joins):
+            lineTo(sx0, sy0);
+            // the next subpath starts at (sx0, sy0):
+            needsMoveTo = true;
+        } else {
+            mark(cx0, cy0, sx0, sy0);
+            out.closePath();
+            cx0 = sx0;
+            cy0 = sy0;
+            needsMoveTo = false;
+        }
+        culled = false;
+    }
+
+    @Override
+    public void pathDone() {
+        out.pathDone();
+        // Dispose this instance:
+        dispose();
+    }
+
+    @Override
+    public void segments(final byte[] types, final int numTypes,
+                         final float[] coords, final int numCoords)
+    {
+        // consume segments (monomorphic calls):
+        int pos = 0;
+        for (int i = 0; i < numTypes; i++) {
+            switch (types[i]) {
+                case PathIterator.SEG_MOVETO:
+                    moveTo(coords[pos], coords[pos + 1]);
+                    pos += 2;
+                    continue;
+                case PathIterator.SEG_LINETO:
+                    lineTo(coords[pos], coords[pos + 1]);
+                    pos += 2;
+                    continue;
+                case PathIterator.SEG_QUADTO:
+                    quadTo(coords[pos],     coords[pos + 1],
+                           coords[pos + 2], coords[pos + 3]);
+                    pos += 4;
+                    continue;
+                case PathIterator.SEG_CUBICTO:
+                    curveTo(coords[pos],     coords[pos + 1],
+                            coords[pos + 2], coords[pos + 3],
+                            coords[pos + 4], coords[pos + 5]);
+                    pos += 6;
+                    continue;
+                case PathIterator.SEG_CLOSE:
+                    closePath();
+                    continue;
+                default:
+            }
+        }
+    }
+
+    @Override
+    public long getNativeConsumer() {
+        throw new InternalError("Not using a native peer");
+    }
+
+    /**
+     * Returns true if all cells touching the capsule of the given segment
+     * are marked (or outside the clip)
+     */
+    private boolean isCovered(final float x0, final float y0,
+                              final float x1, final float y1)
+    {
+        if (!setSegment(x0, y0, x1, y1, testRadius)) {
+            return false;
+        }
+        final int[] _bits = bits;
+        final float cs = cellSize;
+        final float ics = invCellSize;
+
+        int j0 = FloatMath.ceil_int(
+                    (Math.min(y0, y1) - testRadius - gridY) * ics - 0.5f);
+        int j1 = FloatMath.floor_int(
+                    (Math.max(y0, y1) + testRadius - gridY) * ics - 0.5f);
+        if (j0 < 0) {
+            j0 = 0;
+        }
+        if (j1 >= rows) {
+            j1 = rows - 1;
+        }
+        for (int j = j0, i0, i1; j <= j1; j++) {
+            if (!span(gridY + (j + 0.5f) * cs)) {
+                continue;
+            }
+            i0 = FloatMath.ceil_int((spanMin - gridX) * ics - 0.5f);
+            i1 = FloatMath.floor_int((spanMax - gridX) * ics - 0.5f);
+            if (i0 < 0) {
+                i0 = 0;
+            }
+            if (i1 >= cols) {
+                i1 = cols - 1;
+            }
+            if ((i0 <= i1) && !allSet(_bits, j * wordsPerRow, i0, i1)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Marks the cells fully inside the capsule of the given segment
+     */
+    private void mark(final float x0, final float y0,
+                      final float x1, final float y1)
+    {
+        if (!setSegment(x0, y0, x1, y1, markRadius)) {
+            return;
+        }
+        final int[] _bits = bits;
+        final float cs = cellSize;
+        final float ics = invCellSize;
+
+        int j0 = FloatMath.ceil_int(
+                    (Math.min(y0, y1) - markRadius - gridY) * ics - 0.5f);
+        int j1 = FloatMath.floor_int(
+                    (Math.max(y0, y1) + markRadius - gridY) * ics - 0.5f);
+        if (j0 < 0) {
+            j0 = 0;
+        }
+        if (j1 >= rows) {
+            j1 = rows - 1;
+        }
+        for (int j = j0, i0, i1; j <= j1; j++) {
+            if (!span(gridY + (j + 0.5f) * cs)) {
+                continue;
+            }
+            i0 = FloatMath.ceil_int((spanMin - gridX) * ics - 0.5f);
+            i1 = FloatMath.floor_int((spanMax - gridX) * ics - 0.5f);
+            if (i0 < 0) {
+                i0 = 0;
+            }
+            if (i1 >= cols) {
+                i1 = cols - 1;
+            }
+            if (i0 <= i1) {
+                setAll(_bits, j * wordsPerRow, i0, i1);
+                if (j < minRow) {
+                    minRow = j;
+                }
+                if (j > maxRow) {
+                    maxRow = j;
+                }
+            }
+        }
+    }
+
+    /**
+     * Sets the current capsule (segment and radius) used by span()
+     * @return false if the capsule is empty or invalid (NaN)
+     */
+    private boolean setSegment(final float x0, final float y0,
+                               final float x1, final float y1,
+                               final float r)
+    {
+        if (!(r > 0f)) {
+            return false;
+        }
+        sax = x0;
+        say = y0;
+        svx = x1 - x0;
+        svy = y1 - y0;
+        sr2 = r * r;
+        final float len = (float) Math.sqrt(svx * svx + svy * svy);
+        if (len > 0f) {
+            // normal offset (radius):
+            sox = -svy * r / len;
+            soy =  svx * r / len;
+            return true;
+        }
+        sox = soy = 0f;
+        return (len == 0f);
+    }
+
+    /**
+     * Computes the x range [spanMin, spanMax] of the current capsule on
+     * the given horizontal line (convex set)
+     * @return false if the line does not intersect the capsule
+     */
+    private boolean span(final float y) {
+        float min = Float.POSITIVE_INFINITY;
+        float max = Float.NEGATIVE_INFINITY;
+
+        // end disks:
+        float dy = y - say;
+        float h2 = sr2 - dy * dy;
+        float h;
+        if (h2 >= 0f) {
+            h = (float) Math.sqrt(h2);
+            min = sax - h;
+            max = sax + h;
+        }
+        final float bx = sax + svx;
+        dy -= svy;
+        h2 = sr2 - dy * dy;
+        if (h2 >= 0f) {
+            h = (float) Math.sqrt(h2);
+            if (bx - h < min) {
+                min = bx - h;
+            }
+            if (bx + h > max) {
+                max = bx + h;
+            }
+        }
+        // side edges (a +/- o + t * v):
+        if (svy != 0f) {
+            float t = (y - say - soy) / svy;
+            float x;
+            if ((t >= 0f) && (t <= 1f)) {
+                x = sax + sox + t * svx;
+                if (x < min) {
+                    min = x;
+                }
+                if (x > max) {
+                    max = x;
+                }
+            }
+            t = (y - say + soy) / svy;
+            if ((t >= 0f) && (t <= 1f)) {
+                x = sax - sox + t * svx;
+                if (x < min) {
+                    min = x;
+                }
+                if (x > max) {
+                    max = x;
+                }
+            }
+        }
+        spanMin = min;
+        spanMax = max;
+        return (min <= max);
+    }
+
+    private static boolean allSet(final int[] bits, final int off,
+                                  final int i0, final int i1)
+    {
+        final int w0 = off + (i0 >> 5);
+        final int w1 = off + (i1 >> 5);
+        final int m0 = -1 << (i0 & 31);
+        final int m1 = -1 >>> (31 - (i1 & 31));
+        if (w0 == w1) {
+            final int m = m0 & m1;
+            return (bits[w0] & m) == m;
+        }
+        if ((bits[w0] & m0) != m0) {
+            return false;
+        }
+        for (int w = w0 + 1; w < w1; w++) {
+            if (bits[w] != -1) {
+                return false;
+            }
+        }
+        return (bits[w1] & m1) == m1;
+    }
+
+    private static void setAll(final int[] bits, final int off,
+                               final int i0, final int i1)
+    {
+        final int w0 = off + (i0 >> 5);
+        final int w1 = off + (i1 >> 5);
+        final int m0 = -1 << (i0 & 31);
+        final int m1 = -1 >>> (31 - (i1 & 31));
+        if (w0 == w1) {
+            bits[w0] |= (m0 & m1);
+            return;
+        }
+        bits[w0] |= m0;
+        for (int w = w0 + 1; w < w1; w++) {
+            bits[w] = -1;
+        }
+        bits[w1] |= m1;
+    }
+}
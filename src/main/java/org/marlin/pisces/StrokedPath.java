@@ -0,0 +1,323 @@
+/*
+ * Copyright (c) 2015, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.marlin.pisces;
+
+import java.awt.Rectangle;
+import java.awt.Shape;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.FlatteningPathIterator;
+import java.awt.geom.PathIterator;
+import java.awt.geom.Point2D;
+import java.awt.geom.Rectangle2D;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import org.marlin.geom.Path2D;
+import sun.awt.geom.PathConsumer2D;
+
+/**
+ * Immutable compact path (trimmed segment types and float coordinates)
+ * returned by createStrokedShape() when the stroke cache is enabled:
+ * it can be shared safely as it can not be modified.
+ * Its winding rule is always WIND_NON_ZERO.
+ */
+final class StrokedPath implements Shape {
+
+    // segment types (PathIterator.SEG_*)
+    private final byte[] types;
+    // coordinates
+    private final float[] coords;
+    // bounds (control points)
+    private final float minX, minY, maxX, maxY;
+
+    StrokedPath(final byte[] types, final float[] coords) {
+        this.types = types;
+        this.coords = coords;
+
+        final int len = coords.length;
+        if (len == 0) {
+            minX = minY = maxX = maxY = 0f;
+        } else {
+            float x0 = coords[0], x1 = x0;
+            float y0 = coords[1], y1 = y0;
+            float x, y;
+            for (int i = 2; i < len; i += 2) {
+                x = coords[i];
+                y = coords[i + 1];
+                if (x < x0) { x0 = x; } else if (x > x1) { x1 = x; }
+                if (y < y0) { y0 = y; } else if (y > y1) { y1 = y; }
+            }
+            minX = x0;
+            minY = y0;
+            maxX = x1;
+            maxY = y1;
+        }
+    }
+
+    @Override
+    public Rectangle getBounds() {
+        return getBounds2D().getBounds();
+    }
+
+    @Override
+    public Rectangle2D getBounds2D() {
+        return new Rectangle2D.Float(minX, minY, maxX - minX, maxY - minY);
+    }
+
+    @Override
+    public boolean contains(final double x, final double y) {
+        if ((x < minX) || (y < minY) || (x >= maxX) || (y >= maxY)) {
+            return false;
+        }
+        return Path2D.contains(getPathIterator(null), x, y);
+    }
+
+    @Override
+    public boolean contains(final Point2D p) {
+        return contains(p.getX(), p.getY());
+    }
+
+    @Override
+    public boolean intersects(final double x, final double y,
+                              final double w, final double h)
+    {
+        if ((x + w <= minX) || (y + h <= minY) || (x >= maxX) || (y >= maxY)) {
+            return false;
+        }
+        return Path2D.intersects(getPathIterator(null), x, y, w, h);
+    }
+
+    @Override
+    public boolean intersects(final Rectangle2D r) {
+        return intersects(r.getX(), r.getY(), r.getWidth(), r.getHeight());
+    }
+
+    @Override
+    public boolean contains(final double x, final double y,
+                            final double w, final double h)
+    {
+        if ((x < minX) || (y < minY) || (x + w > maxX) || (y + h > maxY)) {
+            return false;
+        }
+        return Path2D.contains(getPathIterator(null), x, y, w, h);
+    }
+
+    @Override
+    public boolean contains(final Rectangle2D r) {
+        return contains(r.getX(), r.getY(), r.getWidth(), r.getHeight());
+    }
+
+    @Override
+    public PathIterator getPathIterator(final AffineTransform at) {
+        return new Iterator(types, coords, at);
+    }
+
+    @Override
+    public PathIterator getPathIterator(final AffineTransform at,
+                                        final double flatness)
+    {
+        return new FlatteningPathIterator(getPathIterator(at), flatness);
+    }
+
+    static final class Iterator implements PathIterator {
+
+        // number of coordinates per segment type:
+        private static final int[] CURVE_COORDS = {2, 2, 4, 6, 0};
+
+        private final byte[] types;
+        private final float[] coords;
+        private final AffineTransform at;
+        private int typeIdx = 0;
+        private int pointIdx = 0;
+
+        Iterator(final byte[] types, final float[] coords,
+                 final AffineTransform at)
+        {
+            this.types = types;
+            this.coords = coords;
+            this.at = at;
+        }
+
+        @Override
+        public int getWindingRule() {
+            return WIND_NON_ZERO;
+        }
+
+        @Override
+        public boolean isDone() {
+            return (typeIdx >= types.length);
+        }
+
+        @Override
+        public void next() {
+            pointIdx += CURVE_COORDS[types[typeIdx++]];
+        }
+
+        @Override
+        public int currentSegment(final float[] coords) {
+            if (isDone()) {
+                throw new NoSuchElementException("path iterator out of bounds");
+            }
+            final int type = types[typeIdx];
+            final int n = CURVE_COORDS[type];
+            if (n > 0) {
+                if (at != null) {
+                    at.transform(this.coords, pointIdx, coords, 0, n / 2);
+                } else {
+                    System.arraycopy(this.coords, pointIdx, coords, 0, n);
+                }
+            }
+            return type;
+        }
+
+        @Override
+        public int currentSegment(final double[] coords) {
+            if (isDone()) {
+                throw new NoSuchElementException("path iterator out of bounds");
+            }
+            final int type = types[typeIdx];
+            final int n = CURVE_COORDS[type];
+            if (n > 0) {
+                if (at != null) {
+                    at.transform(this.coords, pointIdx, coords, 0, n / 2);
+                } else {
+                    for (int i = 0; i < n; i++) {
+                        coords[i] = this.coords[pointIdx + i];
+                    }
+                }
+            }
+            return type;
+        }
+    }
+
+    /**
+     * Path consumer collecting the stroker output (growable arrays reused
+     * by the RendererContext)
+     */
+    static final class Builder implements PathConsumer2D {
+
+        private byte[] types = new byte[INITIAL_TYPES];
+        private float[] coords = new float[INITIAL_TYPES * 2];
+        private int numTypes;
+        private int numCoords;
+
+        private static final int INITIAL_TYPES = MarlinConst.INITIAL_ARRAY;
+
+        Builder() {}
+
+        Builder init() {
+            numTypes = 0;
+            numCoords = 0;
+            return this; // fluent API
+        }
+
+        StrokedPath build() {
+            return new StrokedPath(Arrays.copyOf(types, numTypes),
+                                   Arrays.copyOf(coords, numCoords));
+        }
+
+        private void needRoom(final int nCoords) {
+            if (numTypes >= types.length) {
+                types = Arrays.copyOf(types, types.length << 1);
+            }
+            if (numCoords + nCoords > coords.length) {
+                coords = Arrays.copyOf(coords,
+                             Math.max(coords.length << 1, numCoords + nCoords));
+            }
+        }
+
+        @Override
+        public void moveTo(final float x0, final float y0) {
+            if ((numTypes > 0) && (types[numTypes - 1] == PathIterator.SEG_MOVETO)) {
+                // collapse consecutive moveTo (like Path2D):
+                coords[numCoords - 2] = x0;
+                coords[numCoords - 1] = y0;
+                return;
+            }
+            needRoom(2);
+            types[numTypes++] = PathIterator.SEG_MOVETO;
+            coords[numCoords++] = x0;
+            coords[numCoords++] = y0;
+        }
+
+        @Override
+        public void lineTo(final float x1, final float y1) {
+            needRoom(2);
+            types[numTypes++] = PathIterator.SEG_LINETO;
+            coords[numCoords++] = x1;
+            coords[numCoords++] = y1;
+        }
+
+        @Override
+        public void quadTo(final float x1, final float y1,
+                           final float x2, final float y2)
+        {
+            needRoom(4);
+            types[numTypes++] = PathIterator.SEG_QUADTO;
+            final float[] _coords = coords;
+            int n = numCoords;
+            _coords[n++] = x1;
+            _coords[n++] = y1;
+            _coords[n++] = x2;
+            _coords[n++] = y2;
+            numCoords = n;
+        }
+
+        @Override
+        public void curveTo(final float x1, final float y1,
+                            final float x2, final float y2,
+                            final float x3, final float y3)
+        {
+            needRoom(6);
+            types[numTypes++] = PathIterator.SEG_CUBICTO;
+            final float[] _coords = coords;
+            int n = numCoords;
+            _coords[n++] = x1;
+            _coords[n++] = y1;
+            _coords[n++] = x2;
+            _coords[n++] = y2;
+            _coords[n++] = x3;
+            _coords[n++] = y3;
+            numCoords = n;
+        }
+
+        @Override
+        public void closePath() {
+            if ((numTypes == 0) || (types[numTypes - 1] != PathIterator.SEG_CLOSE)) {
+                needRoom(0);
+                types[numTypes++] = PathIterator.SEG_CLOSE;
+            }
+        }
+
+        @Override
+        public void pathDone() {
+            // nothing to do
+        }
+
+        @Override
+        public long getNativeConsumer() {
+            throw new InternalError("Not using a native peer");
+        }
+    }
+}
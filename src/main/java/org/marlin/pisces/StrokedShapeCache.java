@@ -0,0 +1,197 @@
+/*
+ * Copyright (c) 2015, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.marlin.pisces;
+
+import java.awt.Shape;
+import java.awt.geom.PathIterator;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded (LRU) cache of the stroked shapes returned by
+ * MarlinRenderingEngine.createStrokedShape() keyed by the source path
+ * content and the stroke attributes (sun.java2d.renderer.strokeCacheSize).
+ * <p>
+ * The cached results are immutable (StrokedPath) so they are shared by all
+ * callers. The source path content is copied in the key so modifying the
+ * source shape later never returns a stale result.
+ */
+final class StrokedShapeCache implements MarlinConst {
+
+    // max number of entries
+    private static final int MAX_ENTRIES = STROKE_CACHE_SIZE;
+
+    private static final LinkedHashMap<Key, StrokedPath> CACHE
+        = new LinkedHashMap<Key, StrokedPath>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(
+                final Map.Entry<Key, StrokedPath> eldest)
+            {
+                return size() > MAX_ENTRIES;
+            }
+        };
+
+    private StrokedShapeCache() {
+        // no-op
+    }
+
+    static StrokedPath get(final Key key) {
+        synchronized (CACHE) {
+            return CACHE.get(key);
+        }
+    }
+
+    static void put(final Key key, final StrokedPath shape) {
+        synchronized (CACHE) {
+            CACHE.put(key, shape);
+        }
+    }
+
+    /**
+     * Creates the cache key for the given path content and stroke attributes
+     * @param rdrCtx renderer context (float6 used to iterate the path)
+     * @return new key instance
+     */
+    static Key createKey(final RendererContext rdrCtx,
+                         final Shape src,
+                         final float width,
+                         final int caps,
+                         final int join,
+                         final float miterlimit,
+                         final float[] dashes,
+                         final float dashphase)
+    {
+        final float[] coords = rdrCtx.float6;
+
+        byte[] types = new byte[INITIAL_ARRAY];
+        float[] points = new float[INITIAL_ARRAY * 2];
+        int numTypes = 0;
+        int numCoords = 0;
+
+        for (final PathIterator pi = src.getPathIterator(null);
+             !pi.isDone(); pi.next())
+        {
+            final int type = pi.currentSegment(coords);
+            final int n;
+            switch (type) {
+                case PathIterator.SEG_MOVETO:
+                case PathIterator.SEG_LINETO:
+                    n = 2;
+                    break;
+                case PathIterator.SEG_QUADTO:
+                    n = 4;
+                    break;
+                case PathIterator.SEG_CUBICTO:
+                    n = 6;
+                    break;
+                default:
+                    n = 0;
+            }
+            if (numTypes >= types.length) {
+                types = Arrays.copyOf(types, types.length << 1);
+            }
+            if (numCoords + n > points.length) {
+                points = Arrays.copyOf(points, points.length << 1);
+            }
+            types[numTypes++] = (byte) type;
+            System.arraycopy(coords, 0, points, numCoords, n);
+            numCoords += n;
+        }
+
+        return new Key(Arrays.copyOf(types, numTypes),
+                       Arrays.copyOf(points, numCoords),
+                       width, caps, join, miterlimit,
+                       (dashes != null) ? dashes.clone() : null, dashphase);
+    }
+
+    /**
+     * Immutable cache key: path content and stroke attributes
+     */
+    static final class Key {
+        private final byte[] types;
+        private final float[] coords;
+        private final float width;
+        private final int caps;
+        private final int join;
+        private final float miterlimit;
+        private final float[] dashes;
+        private final float dashphase;
+        private final int hash;
+
+        Key(final byte[] types, final float[] coords,
+            final float width, final int caps, final int join,
+            final float miterlimit, final float[] dashes,
+            final float dashphase)
+        {
+            this.types = types;
+            this.coords = coords;
+            this.width = width;
+            this.caps = caps;
+            this.join = join;
+            this.miterlimit = miterlimit;
+            this.dashes = dashes;
+            this.dashphase = dashphase;
+
+            int h = Arrays.hashCode(types);
+            h = 31 * h + Arrays.hashCode(coords);
+            h = 31 * h + Float.floatToIntBits(width);
+            h = 31 * h + (caps << 2 | join);
+            h = 31 * h + Float.floatToIntBits(miterlimit);
+            h = 31 * h + Arrays.hashCode(dashes);
+            h = 31 * h + Float.floatToIntBits(dashphase);
+            this.hash = h;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            final Key other = (Key) obj;
+            return (hash == other.hash)
+                && (Float.floatToIntBits(width)
+                    == Float.floatToIntBits(other.width))
+                && (caps == other.caps) && (join == other.join)
+                && (Float.floatToIntBits(miterlimit)
+                    == Float.floatToIntBits(other.miterlimit))
+                && (Float.floatToIntBits(dashphase)
+                    == Float.floatToIntBits(other.dashphase))
+                && Arrays.equals(dashes, other.dashes)
+                && Arrays.equals(types, other.types)
+                && Arrays.equals(coords, other.coords);
+        }
+    }
+}
@@ -24,6 +24,7 @@
  */
 package org.marlin.pisces;
 
+import java.awt.geom.PathIterator;
 import java.util.Arrays;
 
 import static java.lang.Math.ulp;
@@ -36,7 +37,7 @@ import org.marlin.pisces.Curve.BreakPtrIterator;
 // TODO: some of the arithmetic here is too verbose and prone to hard to
 // debug typos. We should consider making a small Point/Vector class that
 // has methods like plus(Point), minus(Point), dot(Point), cross(Point)and such
-final class Stroker implements PathConsumer2D, MarlinConst {
+final class Stroker implements BulkPathConsumer2D, MarlinConst {
 
     private static final int MOVE_TO = 0;
     private static final int DRAWING_OP_TO = 1; // ie. curve, line, or quad
@@ -81,6 +82,9 @@ final class Stroker implements PathConsumer2D, MarlinConst {
 
     private static final int MAX_N_CURVES = 11;
 
+    // coalescing tolerance in device space (pixels): half a subpixel
+    static final float COALESCE_TOLERANCE = 0.5f / NORM_SUBPIXELS;
+
     private PathConsumer2D out;
 
     private int capStyle;
@@ -96,6 +100,17 @@ final class Stroker implements PathConsumer2D, MarlinConst {
 
     private int prev;
 
+    // coalescing tolerance (stroker space) or 0 if disabled:
+    // nearly collinear lines are merged and tiny joins are skipped
+    private float coalesceTol;
+    private float coalesceTolSq;
+    // pending line (collinear run starting at cx0, cy0):
+    private boolean pending;
+    // pending end point
+    private float plx, ply;
+    // unit direction and length (projected) of the pending run
+    private float rdx, rdy, rlen;
+
     // The starting point of the path, and the slope there.
     private float sx0, sy0, sdx, sdy;
     // the current point and the slope there.
@@ -147,13 +162,16 @@ final class Stroker implements PathConsumer2D, MarlinConst {
      * <code>JOIN_MITER</code>, <code>JOIN_ROUND</code> or
      * <code>JOIN_BEVEL</code>.
      * @param miterLimit the desired miter limit
+     * @param coalesceTol the tolerance used to merge collinear lines and
+     * skip tiny joins (stroker space) or 0 to disable coalescing
      * @return this instance
      */
     Stroker init(PathConsumer2D pc2d,
               float lineWidth,
               int capStyle,
               int joinStyle,
-              float miterLimit)
+              float miterLimit,
+              float coalesceTol)
     {
         this.out = pc2d;
 
@@ -166,6 +184,10 @@ final class Stroker implements PathConsumer2D, MarlinConst {
 
         this.prev = CLOSE;
 
+        this.coalesceTol = coalesceTol;
+        this.coalesceTolSq = coalesceTol * coalesceTol;
+        this.pending = false;
+
         return this; // fluent API
     }
 
@@ -400,6 +422,9 @@ final class Stroker implements PathConsumer2D, MarlinConst {
 
     @Override
     public void moveTo(float x0, float y0) {
+        if (pending) {
+            flushLine();
+        }
         if (prev == DRAWING_OP_TO) {
             finish();
         }
@@ -411,7 +436,48 @@ final class Stroker implements PathConsumer2D, MarlinConst {
     }
 
     @Override
-    public void lineTo(float x1, float y1) {
+    public void lineTo(final float x1, final float y1) {
+        if (coalesceTol > 0f) {
+            if (pending) {
+                // distances to the run line (from cx0, cy0):
+                final float vx = x1 - cx0;
+                final float vy = y1 - cy0;
+                final float along = vx * rdx + vy * rdy;
+                final float perp  = vx * rdy - vy * rdx;
+
+                if ((along >= rlen) && (Math.abs(perp) <= coalesceTol)) {
+                    // extend the collinear run (no join):
+                    this.plx = x1;
+                    this.ply = y1;
+                    this.rlen = along;
+                    return;
+                }
+                flushLine();
+            }
+            final float dx = x1 - cx0;
+            final float dy = y1 - cy0;
+            final float len = (float) sqrt(dx*dx + dy*dy);
+            if (len > 0f) {
+                // start a new run:
+                this.rdx = dx / len;
+                this.rdy = dy / len;
+                this.rlen = len;
+                this.plx = x1;
+                this.ply = y1;
+                this.pending = true;
+                return;
+            }
+        }
+        _lineTo(x1, y1);
+    }
+
+    // emit the pending collinear run as a single line
+    private void flushLine() {
+        pending = false;
+        _lineTo(plx, ply);
+    }
+
+    private void _lineTo(float x1, float y1) {
         float dx = x1 - cx0;
         float dy = y1 - cy0;
         if (dx == 0f && dy == 0f) {
@@ -440,6 +506,9 @@ final class Stroker implements PathConsumer2D, MarlinConst {
 
     @Override
     public void closePath() {
+        if (pending) {
+            flushLine();
+        }
         if (prev != DRAWING_OP_TO) {
             if (prev == CLOSE) {
                 return;
@@ -454,7 +523,7 @@ final class Stroker implements PathConsumer2D, MarlinConst {
         }
 
         if (cx0 != sx0 || cy0 != sy0) {
-            lineTo(sx0, sy0);
+            _lineTo(sx0, sy0);
         }
 
         drawJoin(cdx, cdy, cx0, cy0, sdx, sdy, cmx, cmy, smx, smy);
@@ -474,6 +543,9 @@ final class Stroker implements PathConsumer2D, MarlinConst {
 
     @Override
     public void pathDone() {
+        if (pending) {
+            flushLine();
+        }
         if (prev == DRAWING_OP_TO) {
             finish();
         }
@@ -585,6 +657,15 @@ final class Stroker implements PathConsumer2D, MarlinConst {
             this.smx = mx;
             this.smy = my;
         } else {
+            if (coalesceTol > 0f) {
+                // skip tiny joins (nearly collinear segments):
+                final float domx = omx - mx;
+                final float domy = omy - my;
+                if (domx * domx + domy * domy <= coalesceTolSq) {
+                    prev = DRAWING_OP_TO;
+                    return;
+                }
+            }
             boolean cw = isCW(pdx, pdy, dx, dy);
             if (joinStyle == JOIN_MITER) {
                 drawMiter(pdx, pdy, x0, y0, dx, dy, omx, omy, mx, my, cw);
@@ -1015,6 +1096,9 @@ final class Stroker implements PathConsumer2D, MarlinConst {
                                   float x2, float y2,
                                   float x3, float y3)
     {
+        if (pending) {
+            flushLine();
+        }
         final float[] mid = middle;
 
         mid[0] = cx0; mid[1] = cy0;
@@ -1109,6 +1193,9 @@ final class Stroker implements PathConsumer2D, MarlinConst {
     }
 
     @Override public void quadTo(float x1, float y1, float x2, float y2) {
+        if (pending) {
+            flushLine();
+        }
         final float[] mid = middle;
 
         mid[0] = cx0; mid[1] = cy0;
@@ -1185,6 +1272,41 @@ final class Stroker implements PathConsumer2D, MarlinConst {
         this.prev = DRAWING_OP_TO;
     }
 
+    @Override
+    public void segments(final byte[] types, final int numTypes,
+                         final float[] coords, final int numCoords)
+    {
+        // consume segments (monomorphic calls):
+        int pos = 0;
+        for (int i = 0; i < numTypes; i++) {
+            switch (types[i]) {
+                case PathIterator.SEG_MOVETO:
+                    moveTo(coords[pos], coords[pos + 1]);
+                    pos += 2;
+                    continue;
+                case PathIterator.SEG_LINETO:
+                    lineTo(coords[pos], coords[pos + 1]);
+                    pos += 2;
+                    continue;
+                case PathIterator.SEG_QUADTO:
+                    quadTo(coords[pos],     coords[pos + 1],
+                           coords[pos + 2], coords[pos + 3]);
+                    pos += 4;
+                    continue;
+                case PathIterator.SEG_CUBICTO:
+                    curveTo(coords[pos],     coords[pos + 1],
+                            coords[pos + 2], coords[pos + 3],
+                            coords[pos + 4], coords[pos + 5]);
+                    pos += 6;
+                    continue;
+                case PathIterator.SEG_CLOSE:
+                    closePath();
+                    continue;
+                default:
+            }
+        }
+    }
+
     @Override public long getNativeConsumer() {
         throw new InternalError("Stroker doesn't use a native consumer");
     }
@@ -26,6 +26,7 @@ package org.marlin.pisces;
 
 import sun.awt.geom.PathConsumer2D;
 import java.awt.geom.AffineTransform;
+import java.awt.geom.PathIterator;
 import org.marlin.geom.Path2D;
 
 final class TransformingPathConsumer2D {
@@ -34,6 +35,54 @@ final class TransformingPathConsumer2D {
         // used by RendererContext
     }
 
+    static BulkPathConsumer2D bulkConsumer(final PathConsumer2D out) {
+        return (out instanceof BulkPathConsumer2D) ? (BulkPathConsumer2D) out
+               : null;
+    }
+
+    /**
+     * Gives the segments to the given consumer at once (bulkOut) if possible
+     * or segment per segment
+     */
+    static void segmentsTo(final PathConsumer2D out,
+                           final BulkPathConsumer2D bulkOut,
+                           final byte[] types, final int numTypes,
+                           final float[] coords, final int numCoords)
+    {
+        if (bulkOut != null) {
+            bulkOut.segments(types, numTypes, coords, numCoords);
+            return;
+        }
+        int pos = 0;
+        for (int i = 0; i < numTypes; i++) {
+            switch (types[i]) {
+                case PathIterator.SEG_MOVETO:
+                    out.moveTo(coords[pos], coords[pos + 1]);
+                    pos += 2;
+                    continue;
+                case PathIterator.SEG_LINETO:
+                    out.lineTo(coords[pos], coords[pos + 1]);
+                    pos += 2;
+                    continue;
+                case PathIterator.SEG_QUADTO:
+                    out.quadTo(coords[pos],     coords[pos + 1],
+                               coords[pos + 2], coords[pos + 3]);
+                    pos += 4;
+                    continue;
+                case PathIterator.SEG_CUBICTO:
+                    out.curveTo(coords[pos],     coords[pos + 1],
+                                coords[pos + 2], coords[pos + 3],
+                                coords[pos + 4], coords[pos + 5]);
+                    pos += 6;
+                    continue;
+                case PathIterator.SEG_CLOSE:
+                    out.closePath();
+                    continue;
+                default:
+            }
+        }
+    }
+
     // recycled PathConsumer2D instance from transformConsumer()
     private final Path2DWrapper        wp_Path2DWrapper        = new Path2DWrapper();
 
@@ -137,8 +186,10 @@ final class TransformingPathConsumer2D {
         }
     }
 
-    private final static class TranslateFilter implements PathConsumer2D {
+    private final static class TranslateFilter implements BulkPathConsumer2D {
         private PathConsumer2D out;
+        // out as a BulkPathConsumer2D or null:
+        private BulkPathConsumer2D bulkOut;
         private float tx, ty;
 
         TranslateFilter() {}
@@ -147,6 +198,7 @@ final class TransformingPathConsumer2D {
                              float tx, float ty)
         {
             this.out = out;
+            this.bulkOut = bulkConsumer(out);
             this.tx = tx;
             this.ty = ty;
             return this; // fluent API
@@ -190,14 +242,28 @@ final class TransformingPathConsumer2D {
             out.pathDone();
         }
 
+        @Override
+        public void segments(final byte[] types, final int numTypes,
+                             final float[] coords, final int numCoords)
+        {
+            // transform coordinates in place:
+            for (int i = 0; i < numCoords; i += 2) {
+                coords[i    ] += tx;
+                coords[i + 1] += ty;
+            }
+            segmentsTo(out, bulkOut, types, numTypes, coords, numCoords);
+        }
+
         @Override
         public long getNativeConsumer() {
             return 0;
         }
     }
 
-    private final static class ScaleFilter implements PathConsumer2D {
+    private final static class ScaleFilter implements BulkPathConsumer2D {
         private PathConsumer2D out;
+        // out as a BulkPathConsumer2D or null:
+        private BulkPathConsumer2D bulkOut;
         private float sx, sy, tx, ty;
 
         ScaleFilter() {}
@@ -207,6 +273,7 @@ final class TransformingPathConsumer2D {
                          float tx, float ty)
         {
             this.out = out;
+            this.bulkOut = bulkConsumer(out);
             this.sx = sx;
             this.sy = sy;
             this.tx = tx;
@@ -252,14 +319,28 @@ final class TransformingPathConsumer2D {
             out.pathDone();
         }
 
+        @Override
+        public void segments(final byte[] types, final int numTypes,
+                             final float[] coords, final int numCoords)
+        {
+            // transform coordinates in place:
+            for (int i = 0; i < numCoords; i += 2) {
+                coords[i    ] = coords[i    ] * sx + tx;
+                coords[i + 1] = coords[i + 1] * sy + ty;
+            }
+            segmentsTo(out, bulkOut, types, numTypes, coords, numCoords);
+        }
+
         @Override
         public long getNativeConsumer() {
             return 0;
         }
     }
 
-    private final static class TransformFilter implements PathConsumer2D {
+    private final static class TransformFilter implements BulkPathConsumer2D {
         private PathConsumer2D out;
+        // out as a BulkPathConsumer2D or null:
+        private BulkPathConsumer2D bulkOut;
         private float mxx, mxy, mxt, myx, myy, myt;
 
         TransformFilter() {}
@@ -269,6 +350,7 @@ final class TransformingPathConsumer2D {
                              float myx, float myy, float myt)
         {
             this.out = out;
+            this.bulkOut = bulkConsumer(out);
             this.mxx = mxx;
             this.mxy = mxy;
             this.mxt = mxt;
@@ -323,14 +405,31 @@ final class TransformingPathConsumer2D {
             out.pathDone();
         }
 
+        @Override
+        public void segments(final byte[] types, final int numTypes,
+                             final float[] coords, final int numCoords)
+        {
+            // transform coordinates in place:
+            float x, y;
+            for (int i = 0; i < numCoords; i += 2) {
+                x = coords[i    ];
+                y = coords[i + 1];
+                coords[i    ] = x * mxx + y * mxy + mxt;
+                coords[i + 1] = x * myx + y * myy + myt;
+            }
+            segmentsTo(out, bulkOut, types, numTypes, coords, numCoords);
+        }
+
         @Override
         public long getNativeConsumer() {
             return 0;
         }
     }
 
-    private final static class DeltaScaleFilter implements PathConsumer2D {
+    private final static class DeltaScaleFilter implements BulkPathConsumer2D {
         private PathConsumer2D out;
+        // out as a BulkPathConsumer2D or null:
+        private BulkPathConsumer2D bulkOut;
         private float sx, sy;
 
         DeltaScaleFilter() {}
@@ -339,6 +438,7 @@ final class TransformingPathConsumer2D {
                               float mxx, float myy)
         {
             this.out = out;
+            this.bulkOut = bulkConsumer(out);
             sx = mxx;
             sy = myy;
             return this; // fluent API
@@ -382,14 +482,28 @@ final class TransformingPathConsumer2D {
             out.pathDone();
         }
 
+        @Override
+        public void segments(final byte[] types, final int numTypes,
+                             final float[] coords, final int numCoords)
+        {
+            // transform coordinates in place:
+            for (int i = 0; i < numCoords; i += 2) {
+                coords[i    ] *= sx;
+                coords[i + 1] *= sy;
+            }
+            segmentsTo(out, bulkOut, types, numTypes, coords, numCoords);
+        }
+
         @Override
         public long getNativeConsumer() {
             return 0;
         }
     }
 
-    private final static class DeltaTransformFilter implements PathConsumer2D {
+    private final static class DeltaTransformFilter implements BulkPathConsumer2D {
         private PathConsumer2D out;
+        // out as a BulkPathConsumer2D or null:
+        private BulkPathConsumer2D bulkOut;
         private float mxx, mxy, myx, myy;
 
         DeltaTransformFilter() {}
@@ -399,6 +513,7 @@ final class TransformingPathConsumer2D {
                                   float myx, float myy)
         {
             this.out = out;
+            this.bulkOut = bulkConsumer(out);
             this.mxx = mxx;
             this.mxy = mxy;
             this.myx = myx;
@@ -451,6 +566,21 @@ final class TransformingPathConsumer2D {
             out.pathDone();
         }
 
+        @Override
+        public void segments(final byte[] types, final int numTypes,
+                             final float[] coords, final int numCoords)
+        {
+            // transform coordinates in place:
+            float x, y;
+            for (int i = 0; i < numCoords; i += 2) {
+                x = coords[i    ];
+                y = coords[i + 1];
+                coords[i    ] = x * mxx + y * mxy;
+                coords[i + 1] = x * myx + y * myy;
+            }
+            segmentsTo(out, bulkOut, types, numTypes, coords, numCoords);
+        }
+
         @Override
         public long getNativeConsumer() {
             return 0;
@@ -28,6 +28,7 @@ import java.awt.BasicStroke;
 import java.awt.Rectangle;
 import java.awt.Shape;
 import java.awt.geom.Rectangle2D;
+import org.marlin.pisces.MarlinAATileGenerator;
 import sun.awt.SunHints;
 import sun.java2d.SunGraphics2D;
 
@@ -53,9 +54,15 @@ public class AAShapePipe
     };
 
     CompositePipe outpipe;
+    // true if the outpipe supports wide tiles (atile = null)
+    final boolean mergeFullTiles;
 
     public AAShapePipe(CompositePipe pipe) {
         outpipe = pipe;
+        // known pipes handling any tile width:
+        mergeFullTiles = (pipe instanceof AlphaColorPipe)
+                         || (pipe instanceof AlphaPaintPipe)
+                         || (pipe instanceof GeneralCompositePipe);
     }
 
     public void draw(SunGraphics2D sg, Shape s) {
@@ -156,6 +163,13 @@ public class AAShapePipe
 
             // get tile from thread local storage:
             final byte[] alpha = ts.getAlphaTile(tw * th);
+
+            if (aatg instanceof MarlinAATileGenerator) {
+                renderTileRuns(context, (MarlinAATileGenerator) aatg,
+                               abox, alpha, tw, th);
+                return;
+            }
+
             byte[] atile;
 
             for (int y = abox[1]; y < abox[3]; y += th) {
@@ -193,6 +207,72 @@ public class AAShapePipe
         }
     }
 
+    /**
+     * Renders tiles using the tile row occupancy: runs of empty tiles are
+     * skipped at once and adjacent full tiles are merged into a single
+     * renderPathTile() call (wide tile) if the outpipe supports it.
+     */
+    private void renderTileRuns(final Object context,
+                                final MarlinAATileGenerator aatg,
+                                final int[] abox, final byte[] alpha,
+                                final int tw, final int th)
+    {
+        final CompositePipe pipe = outpipe;
+        final boolean merge = mergeFullTiles;
+        final int x1 = abox[2];
+
+        byte[] atile;
+        int n;
+
+        for (int y = abox[1]; y < abox[3]; y += th) {
+            final int h = Math.min(th, abox[3] - y);
+
+            for (int x = abox[0]; x < x1; ) {
+                int w = Math.min(tw, x1 - x);
+
+                final int a = aatg.getTypicalAlpha();
+                if (a == 0x00) {
+                    // skip the run of empty tiles:
+                    n = aatg.getEmptyTileRun();
+                    aatg.nextTiles(n);
+                    for (int i = 0; i < n; i++, x += tw) {
+                        pipe.skipTile(context, x, y);
+                    }
+                    continue;
+                }
+                if (a == 0xff) {
+                    // merge adjacent full tiles:
+                    n = (merge) ? aatg.getFullTileRun() : 1;
+                    w = Math.min(n * tw, x1 - x);
+
+                    if (pipe.needTile(context, x, y, w, h)) {
+                        aatg.nextTiles(n);
+                        pipe.renderPathTile(context, null, 0, tw,
+                                            x, y, w, h);
+                        x += n * tw;
+                    } else {
+                        aatg.nextTiles(n);
+                        for (int i = 0; i < n; i++, x += tw) {
+                            pipe.skipTile(context, x, y);
+                        }
+                    }
+                    continue;
+                }
+                if (pipe.needTile(context, x, y, w, h) == false) {
+                    aatg.nextTile();
+                    pipe.skipTile(context, x, y);
+                } else {
+                    atile = alpha;
+                    aatg.getAlpha(alpha, 0, tw);
+
+                    pipe.renderPathTile(context, atile, 0, tw,
+                                        x, y, w, h);
+                }
+                x += tw;
+            }
+        }
+    }
+
     // Tile state used by AAShapePipe
     static final class TileState {
         // cached tile (32 x 32 tile by default)
@@ -12,11 +12,13 @@ import java.awt.image.DataBuffer;
 import java.awt.image.Raster;
 import java.awt.image.WritableRaster;
 import java.util.Arrays;
+import sun.awt.image.IntegerInterleavedRaster;
 
 public final class BlendComposite implements Composite {
 
     private final static double GAMMA = 2.2;
     private final static BlendComposite.GammaLUT gamma_LUT = new BlendComposite.GammaLUT(GAMMA);
+    private final static BlendComposite.LinearLUT linear_LUT = new BlendComposite.LinearLUT();
 
     private static boolean DEBUG = false;
     private static boolean TRACE = false;
@@ -54,6 +56,36 @@ public final class BlendComposite implements Composite {
         }
     }
 
+    /**
+     * Linear-light LUTs using the exact sRGB transfer functions:
+     * dir[] gives 16 bits linear values [0; 65535] for 8 bits sRGB values
+     * and inv[] (4096 entries) gives 8 bits sRGB values for 12 bits linear
+     * values (16 bits linear >> 4).
+     */
+    public static class LinearLUT {
+
+        private final static int MAX_COLORS = 256;
+        final static int LINEAR_BITS = 16;
+        final static int INV_BITS = 12;
+        final static int INV_SHIFT = LINEAR_BITS - INV_BITS;
+        private final static int INV_SIZE = 1 << INV_BITS;
+
+        final int[] dir = new int[MAX_COLORS];
+        final int[] inv = new int[INV_SIZE];
+
+        LinearLUT() {
+            final float maxLinear = (float) ((1 << LINEAR_BITS) - 1);
+
+            for (int i = 0; i < MAX_COLORS; i++) {
+                dir[i] = Math.round(maxLinear * sRGB_to_RGB(i / 255f));
+            }
+            // use the center of each linear interval:
+            for (int i = 0; i < INV_SIZE; i++) {
+                inv[i] = RGB_to_sRGBi((i + 0.5f) / INV_SIZE);
+            }
+        }
+    }
+
     static {
         if (DEBUG) {
             TRACE = true;
@@ -132,9 +164,15 @@ public final class BlendComposite implements Composite {
 
     public enum BlendingMode {
 
-        SRC_OVER
+        SRC_OVER,
+        /* SRC_OVER in linear-light using 16 bits integer maths */
+        SRC_OVER_LINEAR,
+        /* SRC_OVER in the CIE Lab space (perceptual) */
+        SRC_OVER_LAB
     }
     public static final BlendComposite SrcOver = new BlendComposite(BlendComposite.BlendingMode.SRC_OVER);
+    public static final BlendComposite SrcOverLinear = new BlendComposite(BlendComposite.BlendingMode.SRC_OVER_LINEAR);
+    public static final BlendComposite SrcOverLab = new BlendComposite(BlendComposite.BlendingMode.SRC_OVER_LAB);
     private BlendComposite.BlendingMode mode;
 
     private BlendComposite(BlendComposite.BlendingMode mode) {
@@ -184,23 +222,36 @@ public final class BlendComposite implements Composite {
         }
     };
 
-    private static final class BlendingContext implements CompositeContext {
+    static final class BlendingContext implements CompositeContext {
 
         private BlendComposite.Blender _blender;
+        // stateful Lab blender (per thread):
+        private final BlenderSrcOverLab _labBlender = new BlenderSrcOverLab();
         // recycled arrays into context (shared):
-        final int[] _srcPixel = new int[4];
-        final int[] _dstPixel = new int[4];
-        final int[] _result = new int[4];
+        final float[] _src = new float[4];
+        final float[] _dst = new float[4];
+        final float[] _mix = new float[4];
         int[] _srcPixels = new int[32];
         int[] _dstPixels = new int[32];
         int[] _maskPixels = new int[32];
+        // solid color span (filled with _solidPixel if _solidValid):
+        int[] _solidPixels = new int[32];
+        int _solidPixel;
+        boolean _solidValid = false;
+        // full coverage mask:
+        byte[] _fullMask = new byte[0];
 
         BlendingContext() {
             // ThreadLocal constructor
         }
 
         void init(BlendComposite composite) {
-            this._blender = BlendComposite.Blender.getBlenderFor(composite);
+            if (composite.getMode() == BlendingMode.SRC_OVER_LAB) {
+                // new sequence: reset cached paint colors
+                this._blender = _labBlender.init();
+            } else {
+                this._blender = BlendComposite.Blender.getBlenderFor(composite);
+            }
         }
 
         int[] getSrcPixels(final int len) {
@@ -236,6 +287,58 @@ public final class BlendComposite implements Composite {
         public void dispose() {
         }
 
+        /**
+         * Blend the given constant source pixel (INT_ARGB) into the (x, y,
+         * w, h) area of the destination raster using the coverage mask
+         * (atile = null means full coverage) without any source raster
+         */
+        void blendSolid(final int srcPixel,
+                        final byte[] atile, final int offset, final int tilesize,
+                        final IntegerInterleavedRaster dst,
+                        final int x, final int y, final int w, final int h) {
+
+            int[] srcPixels = _solidPixels;
+            if (srcPixels.length < w) {
+                _solidPixels = srcPixels = new int[w];
+                _solidValid = false;
+            }
+            if (!_solidValid || (_solidPixel != srcPixel)) {
+                Arrays.fill(srcPixels, srcPixel);
+                _solidPixel = srcPixel;
+                _solidValid = true;
+            }
+
+            final byte[] mask;
+            int maskOff;
+            final int maskScan;
+            if (atile == null) {
+                if (_fullMask.length < w) {
+                    _fullMask = new byte[w];
+                    Arrays.fill(_fullMask, (byte) 0xFF);
+                }
+                mask = _fullMask;
+                maskOff = 0;
+                maskScan = 0;
+            } else {
+                mask = atile;
+                maskOff = offset;
+                maskScan = tilesize;
+            }
+
+            final int[] dstPixels = dst.getDataStorage();
+            final int dstScan = dst.getScanlineStride();
+            int dstOff = dst.getDataOffset(0)
+                         + (y - dst.getMinY()) * dstScan + (x - dst.getMinX());
+
+            final BlendComposite.Blender blender = _blender;
+
+            for (int j = 0; j < h; j++, dstOff += dstScan, maskOff += maskScan) {
+                blender.blend(srcPixels, 0, dstPixels, dstOff, mask, maskOff, w);
+            }
+            // data storage was modified directly:
+            dst.markDirty();
+        }
+
         public void compose(Raster srcIn, Raster dstIn, WritableRaster dstOut) {
             if (srcIn.getSampleModel().getDataType() != DataBuffer.TYPE_INT
                     || dstIn.getSampleModel().getDataType() != DataBuffer.TYPE_INT
@@ -251,116 +354,134 @@ public final class BlendComposite implements Composite {
             final int width = Math.min(srcIn.getWidth(), dstIn.getWidth());
             final int height = Math.min(srcIn.getHeight(), dstIn.getHeight());
 
-            final int[] gamma_dir = gamma_LUT.dir;
-            final int[] gamma_inv = gamma_LUT.inv;
-
-            final BlendComposite.Blender blender = _blender;
-
-            // use shared arrays:
-            final int[] srcPixel = _srcPixel;
-            final int[] dstPixel = _dstPixel;
-            final int[] result = _result;
+            if ((srcIn instanceof IntegerInterleavedRaster)
+                    && (dstIn instanceof IntegerInterleavedRaster)
+                    && (dstOut instanceof IntegerInterleavedRaster)) {
+                // fast path: blend directly the int[] storage (no copy):
+                final IntegerInterleavedRaster srcRaster = (IntegerInterleavedRaster) srcIn;
+                final IntegerInterleavedRaster dstRaster = (IntegerInterleavedRaster) dstIn;
+                final IntegerInterleavedRaster outRaster = (IntegerInterleavedRaster) dstOut;
+
+                final int[] srcPixels = srcRaster.getDataStorage();
+                final int[] dstPixels = dstRaster.getDataStorage();
+                final int[] outPixels = outRaster.getDataStorage();
+
+                final int srcScan = srcRaster.getScanlineStride();
+                final int dstScan = dstRaster.getScanlineStride();
+                final int outScan = outRaster.getScanlineStride();
+
+                int srcOff = srcRaster.getDataOffset(0);
+                int dstOff = dstRaster.getDataOffset(0);
+                int outOff = outRaster.getDataOffset(0);
+
+                for (int y = 0; y < height; y++) {
+                    // mask is stored in dstOut (overwritten by the result):
+                    blend(srcPixels, srcOff, dstPixels, dstOff,
+                          outPixels, outOff, outPixels, outOff, width);
+                    srcOff += srcScan;
+                    dstOff += dstScan;
+                    outOff += outScan;
+                }
+                // data storage was modified directly:
+                outRaster.markDirty();
+                return;
+            }
 
             final int[] srcPixels = getSrcPixels(width);
             final int[] dstPixels = getDstPixels(width);
             final int[] maskPixels = getMaskPixels(width);
 
-            float[] src = new float[4];
-            float[] dst = new float[4];
-            float[] mix = new float[4];
-
-            int alpha, pixel;
-            float src_alpha;
-
             for (int y = 0; y < height; y++) {
-                // TODO: use directly BufferInt
                 srcIn.getDataElements(0, y, width, 1, srcPixels);
                 dstIn.getDataElements(0, y, width, 1, dstPixels);
                 dstOut.getDataElements(0, y, width, 1, maskPixels);
 
-                for (int x = 0; x < width; x++) {
-                    // pixels are stored as INT_ARGB
-                    // our arrays are [R, G, B, A]
-                    pixel = maskPixels[x];
-                    alpha = /* ( */ pixel /* >> 24) & 0xFF */;
-
-                    if (alpha == 255) {
-                        dstPixels[x] = srcPixels[x];
-                    } else if (alpha != 0) {
-//                        System.out.println("alpha = " + alpha);
-
-                        if (USE_COLORSPACE) {
-                            src = (USE_LAB) ? sRGB_to_Lab(srcPixels[x], src) : sRGB_to_LCH(srcPixels[x], src);
-                            dst = (USE_LAB) ? sRGB_to_Lab(dstPixels[x], dst) : sRGB_to_LCH(dstPixels[x], dst);
-
-                            if (TRACE) {
-                                System.out.println("src: " + Arrays.toString(src));
-                                System.out.println("dst: " + Arrays.toString(dst));
-                            }
-
-                            src_alpha = (alpha / 255f);
-
-                            // src & dst are Lab or LCH:
-                            if (USE_MIX_L) {
-                                mix[0] = (dst[0] + src_alpha * (src[0] - dst[0]));
-                            } else {
-                                // L is luminance, use Y (brightness) instead:
-                                float Ysrc = L_to_Y(src[0]);
-                                float Ydst = L_to_Y(dst[0]);
-                                mix[0] = Y_to_L(Ydst + src_alpha * (Ysrc - Ydst));
-                            }
-
-                            // a(Lab) or C(LCH):
-                            mix[1] = (dst[1] + src_alpha * (src[1] - dst[1]));
-
-                            if (USE_LAB) {
-                                // b(Lab)
-                                mix[2] = (dst[2] + src_alpha * (src[2] - dst[2]));
-                            } else {
-                                // H(Lch) angle combination:
-                                float d = src[2] - dst[2];
-                                if (d > 180f) {
-                                    d -= 360f;
-                                } else if (d < -180f) {
-                                    d += 360d;
-                                }
-                                mix[2] = (dst[2] + src_alpha * d);
-                            }
-                            mix[3] = 1f;
-
-                            if (TRACE) {
-                                System.out.println("mixLCH: " + Arrays.toString(mix));
-                            }
-
-                            dstPixels[x] = (USE_LAB) ? Lab_to_sRGB(mix) : LCH_to_sRGB(mix);
-
-                        } else {
-
-                            // blend
-                            pixel = srcPixels[x];
-                            srcPixel[0] = gamma_dir[(pixel >> 16) & 0xFF];
-                            srcPixel[1] = gamma_dir[(pixel >> 8) & 0xFF];
-                            srcPixel[2] = gamma_dir[(pixel) & 0xFF];
-                            srcPixel[3] = (pixel >> 24) & 0xFF;
-
-                            pixel = dstPixels[x];
-                            dstPixel[0] = gamma_dir[(pixel >> 16) & 0xFF];
-                            dstPixel[1] = gamma_dir[(pixel >> 8) & 0xFF];
-                            dstPixel[2] = gamma_dir[(pixel) & 0xFF];
-                            dstPixel[3] = (pixel >> 24) & 0xFF;
-
-                            // recycle int[] instances:
-                            blender.blend(srcPixel, dstPixel, alpha, result);
-
-                            // mixes the result with the opacity
-                            dstPixels[x] = (/*result[3] & */0xFF) << 24
-                                    | gamma_inv[result[0] & 0xFF] << 16
-                                    | gamma_inv[result[1] & 0xFF] << 8
-                                    | gamma_inv[result[2] & 0xFF];
+                blend(srcPixels, 0, dstPixels, 0, maskPixels, 0,
+                      dstPixels, 0, width);
+
+                dstOut.setDataElements(0, y, width, 1, dstPixels);
+            }
+        }
+
+        /**
+         * Blend one row of INT_ARGB pixels: out = blend(src, dst, mask)
+         * where mask values are in [0; 255]
+         * Note: out and mask (or dst) may be the same array (same offset)
+         */
+        private void blend(final int[] srcPixels, final int srcOff,
+                           final int[] dstPixels, final int dstOff,
+                           final int[] maskPixels, final int maskOff,
+                           final int[] outPixels, final int outOff,
+                           final int width) {
+
+            if (!USE_COLORSPACE) {
+                // gamma corrected blending on packed pixels (whole span):
+                _blender.blend(srcPixels, srcOff, dstPixels, dstOff,
+                               maskPixels, maskOff, outPixels, outOff, width);
+                return;
+            }
+
+            float[] src = _src;
+            float[] dst = _dst;
+            final float[] mix = _mix;
+
+            int alpha;
+            float src_alpha;
+
+            for (int x = 0; x < width; x++) {
+                alpha = maskPixels[maskOff + x];
+
+                if (alpha == 255) {
+                    outPixels[outOff + x] = srcPixels[srcOff + x];
+                } else if (alpha != 0) {
+                    src = (USE_LAB) ? sRGB_to_Lab(srcPixels[srcOff + x], src) : sRGB_to_LCH(srcPixels[srcOff + x], src);
+                    dst = (USE_LAB) ? sRGB_to_Lab(dstPixels[dstOff + x], dst) : sRGB_to_LCH(dstPixels[dstOff + x], dst);
+
+                    if (TRACE) {
+                        System.out.println("src: " + Arrays.toString(src));
+                        System.out.println("dst: " + Arrays.toString(dst));
+                    }
+
+                    src_alpha = (alpha / 255f);
+
+                    // src & dst are Lab or LCH:
+                    if (USE_MIX_L) {
+                        mix[0] = (dst[0] + src_alpha * (src[0] - dst[0]));
+                    } else {
+                        // L is luminance, use Y (brightness) instead:
+                        float Ysrc = L_to_Y(src[0]);
+                        float Ydst = L_to_Y(dst[0]);
+                        mix[0] = Y_to_L(Ydst + src_alpha * (Ysrc - Ydst));
+                    }
+
+                    // a(Lab) or C(LCH):
+                    mix[1] = (dst[1] + src_alpha * (src[1] - dst[1]));
+
+                    if (USE_LAB) {
+                        // b(Lab)
+                        mix[2] = (dst[2] + src_alpha * (src[2] - dst[2]));
+                    } else {
+                        // H(Lch) angle combination:
+                        float d = src[2] - dst[2];
+                        if (d > 180f) {
+                            d -= 360f;
+                        } else if (d < -180f) {
+                            d += 360d;
                         }
+                        mix[2] = (dst[2] + src_alpha * d);
                     }
+                    mix[3] = 1f;
+
+                    if (TRACE) {
+                        System.out.println("mixLCH: " + Arrays.toString(mix));
+                    }
+
+                    outPixels[outOff + x] = (USE_LAB) ? Lab_to_sRGB(mix) : LCH_to_sRGB(mix);
+
+                } else if (outPixels != dstPixels) {
+                    // mask = 0: keep the destination pixel
+                    outPixels[outOff + x] = dstPixels[dstOff + x];
                 }
-                dstOut.setDataElements(0, y, width, 1, dstPixels);
             }
         }
     }
@@ -368,13 +489,48 @@ public final class BlendComposite implements Composite {
     private static abstract class Blender {
 
         private final static BlenderSrcOver srcOverBlender = new BlenderSrcOver();
+        private final static BlenderSrcOverLinear srcOverLinearBlender = new BlenderSrcOverLinear();
+
+        /**
+         * Blend a span of packed INT_ARGB pixels in place:
+         * dst = blend(src, dst, mask)
+         * @param srcSpan source pixels
+         * @param dstSpan destination pixels (updated)
+         * @param mask coverage values [0; 255]
+         * @param len number of pixels
+         */
+        public void blend(final int[] srcSpan, final int[] dstSpan,
+                          final byte[] mask, final int len) {
+            blend(srcSpan, 0, dstSpan, 0, mask, 0, len);
+        }
 
-        public abstract void blend(int[] src, int[] dst, int alpha, int[] result);
+        /**
+         * Blend a span of packed INT_ARGB pixels in place:
+         * dst = blend(src, dst, mask) where mask values are in [0; 255]
+         */
+        public abstract void blend(int[] srcSpan, int srcOff,
+                                   int[] dstSpan, int dstOff,
+                                   byte[] mask, int maskOff, int len);
+
+        /**
+         * Blend a span of packed INT_ARGB pixels:
+         * out = blend(src, dst, mask) where mask values are in [0; 255]
+         * Note: out and mask (or dst) may be the same array (same offset)
+         */
+        public abstract void blend(int[] srcSpan, int srcOff,
+                                   int[] dstSpan, int dstOff,
+                                   int[] maskSpan, int maskOff,
+                                   int[] outSpan, int outOff, int len);
 
         public static BlendComposite.Blender getBlenderFor(BlendComposite composite) {
             switch (composite.getMode()) {
                 case SRC_OVER:
                     return srcOverBlender;
+                case SRC_OVER_LINEAR:
+                    return srcOverLinearBlender;
+                case SRC_OVER_LAB:
+                    // stateful (cached colors) so not shared:
+                    return new BlenderSrcOverLab();
                 default:
                     throw new IllegalArgumentException("Blender not implement for " + composite.getMode().name());
             }
@@ -383,36 +539,333 @@ public final class BlendComposite implements Composite {
 
     private final static class BlenderSrcOver extends BlendComposite.Blender {
 
-        private static final boolean USE_FLOATS = false;
+        // gamma LUTs: dir[] gives linear values, inv[] gives gamma values:
+        private final static int[] GAMMA_DIR = gamma_LUT.dir;
+        private final static int[] GAMMA_INV = gamma_LUT.inv;
+        // GAMMA_DIR shifted for the red channel (packed 0x00RR00BB lanes):
+        private final static int[] GAMMA_DIR_R = new int[256];
+
+        static {
+            for (int i = 0; i < 256; i++) {
+                GAMMA_DIR_R[i] = GAMMA_DIR[i] << 16;
+            }
+        }
 
         @Override
-        public void blend(final int[] src, final int[] dst, final int alpha, final int[] result) {
-            if (USE_FLOATS) {
-                final float src_alpha = alpha / 255f;
-                final float comp_src_alpha = 1f - src_alpha;
-                // src & dst are gamma corrected
-
-                // TODO: use integer maths:
-                result[0] = Math.min(255, (int) (src[0] * src_alpha + dst[0] * comp_src_alpha));
-                result[1] = Math.min(255, (int) (src[1] * src_alpha + dst[1] * comp_src_alpha));
-                result[2] = Math.min(255, (int) (src[2] * src_alpha + dst[2] * comp_src_alpha));
-                //                            result[3] = 255; /* Math.max(0, Math.min(255, (int) (255f * (src_alpha + comp_src_alpha)))) */
-            } else {
-                final int src_alpha = alpha;
-                final int comp_src_alpha = 255 - src_alpha;
-                // src & dst are gamma corrected
-
-                // TODO: use integer maths:
-/*
-                 result[0] = (src[0] * src_alpha + dst[0] * comp_src_alpha) / 255;
-                 result[1] = (src[1] * src_alpha + dst[1] * comp_src_alpha) / 255;
-                 result[2] = (src[2] * src_alpha + dst[2] * comp_src_alpha) / 255;
-                 */
-                result[0] = (src[0] * src_alpha + dst[0] * comp_src_alpha) >> 8;
-                result[1] = (src[1] * src_alpha + dst[1] * comp_src_alpha) >> 8;
-                result[2] = (src[2] * src_alpha + dst[2] * comp_src_alpha) >> 8;
-                //                            result[3] = 255; /* Math.max(0, Math.min(255, (int) (255f * (src_alpha + comp_src_alpha)))) */
+        public void blend(final int[] srcSpan, final int srcOff,
+                          final int[] dstSpan, final int dstOff,
+                          final byte[] mask, final int maskOff,
+                          final int len) {
+            int alpha;
+            for (int i = 0; i < len; i++) {
+                alpha = mask[maskOff + i] & 0xFF;
+
+                if (alpha == 255) {
+                    dstSpan[dstOff + i] = srcSpan[srcOff + i];
+                } else if (alpha != 0) {
+                    dstSpan[dstOff + i] = blendPixel(srcSpan[srcOff + i],
+                                                     dstSpan[dstOff + i], alpha);
+                }
+            }
+        }
+
+        @Override
+        public void blend(final int[] srcSpan, final int srcOff,
+                          final int[] dstSpan, final int dstOff,
+                          final int[] maskSpan, final int maskOff,
+                          final int[] outSpan, final int outOff,
+                          final int len) {
+            final boolean copyDst = (outSpan != dstSpan);
+            int alpha;
+            for (int i = 0; i < len; i++) {
+                alpha = maskSpan[maskOff + i];
+
+                if (alpha == 255) {
+                    outSpan[outOff + i] = srcSpan[srcOff + i];
+                } else if (alpha != 0) {
+                    outSpan[outOff + i] = blendPixel(srcSpan[srcOff + i],
+                                                     dstSpan[dstOff + i], alpha);
+                } else if (copyDst) {
+                    // mask = 0: keep the destination pixel
+                    outSpan[outOff + i] = dstSpan[dstOff + i];
+                }
+            }
+        }
+
+        /**
+         * Gamma corrected SRC_OVER blending of packed pixels (SWAR):
+         * red and blue channels are blended with a single multiply in
+         * 16-bit lanes (0x00RR00BB) as (255 x 255) can not overflow a lane.
+         * The result is opaque (alpha = 255).
+         */
+        private static int blendPixel(final int src, final int dst,
+                                      final int alpha) {
+            final int[] dir_r = GAMMA_DIR_R;
+            final int[] dir = GAMMA_DIR;
+            final int[] inv = GAMMA_INV;
+
+            final int comp_alpha = 255 - alpha;
+
+            // linear R & B lanes:
+            final int srcRB = dir_r[(src >> 16) & 0xFF] | dir[src & 0xFF];
+            final int dstRB = dir_r[(dst >> 16) & 0xFF] | dir[dst & 0xFF];
+
+            final int rb = ((srcRB * alpha + dstRB * comp_alpha) >> 8) & 0x00FF00FF;
+            final int g = (dir[(src >> 8) & 0xFF] * alpha
+                           + dir[(dst >> 8) & 0xFF] * comp_alpha) >> 8;
+
+            return 0xFF000000
+                   | inv[rb >>> 16] << 16
+                   | inv[g] << 8
+                   | inv[rb & 0xFF];
+        }
+    }
+
+    private final static class BlenderSrcOverLinear extends BlendComposite.Blender {
+
+        // linear LUTs: 16 bits linear values and 4096 entries inverse LUT:
+        private final static int[] LINEAR_DIR = linear_LUT.dir;
+        private final static int[] LINEAR_INV = linear_LUT.inv;
+        private final static int INV_SHIFT = LinearLUT.INV_SHIFT;
+
+        @Override
+        public void blend(final int[] srcSpan, final int srcOff,
+                          final int[] dstSpan, final int dstOff,
+                          final byte[] mask, final int maskOff,
+                          final int len) {
+            int alpha;
+            for (int i = 0; i < len; i++) {
+                alpha = mask[maskOff + i] & 0xFF;
+
+                if (alpha != 0) {
+                    dstSpan[dstOff + i] = blendPixel(srcSpan[srcOff + i],
+                                                     dstSpan[dstOff + i], alpha);
+                }
+            }
+        }
+
+        @Override
+        public void blend(final int[] srcSpan, final int srcOff,
+                          final int[] dstSpan, final int dstOff,
+                          final int[] maskSpan, final int maskOff,
+                          final int[] outSpan, final int outOff,
+                          final int len) {
+            final boolean copyDst = (outSpan != dstSpan);
+            int alpha;
+            for (int i = 0; i < len; i++) {
+                alpha = maskSpan[maskOff + i];
+
+                if (alpha != 0) {
+                    outSpan[outOff + i] = blendPixel(srcSpan[srcOff + i],
+                                                     dstSpan[dstOff + i], alpha);
+                } else if (copyDst) {
+                    // mask = 0: keep the destination pixel
+                    outSpan[outOff + i] = dstSpan[dstOff + i];
+                }
+            }
+        }
+
+        /**
+         * SRC_OVER blending of packed pixels in linear-light (16 bits):
+         * the source alpha is combined with the coverage, then red and blue
+         * channels are blended with a single multiply in 32-bit lanes.
+         * The result is opaque (alpha = 255).
+         */
+        private static int blendPixel(final int src, final int dst,
+                                      final int mask) {
+            // alpha = mask * src_alpha / 255 (rounded):
+            int alpha = mask * (src >>> 24) + 0x80;
+            alpha = (alpha + (alpha >> 8)) >> 8;
+
+            if (alpha == 255) {
+                return src;
+            }
+            if (alpha == 0) {
+                return dst;
+            }
+            // scale alpha to [0; 256] to divide by 256 (exact bounds):
+            alpha += (alpha >> 7);
+            final int comp_alpha = 256 - alpha;
+
+            final int[] dir = LINEAR_DIR;
+            final int[] inv = LINEAR_INV;
+
+            // linear R & B lanes:
+            final long srcRB = ((long) dir[(src >> 16) & 0xFF] << 32) | dir[src & 0xFF];
+            final long dstRB = ((long) dir[(dst >> 16) & 0xFF] << 32) | dir[dst & 0xFF];
+
+            final long rb = (srcRB * alpha + dstRB * comp_alpha) >>> 8;
+            final int g = (dir[(src >> 8) & 0xFF] * alpha
+                           + dir[(dst >> 8) & 0xFF] * comp_alpha) >> 8;
+
+            return 0xFF000000
+                   | inv[((int) (rb >>> 32)) >> INV_SHIFT] << 16
+                   | inv[g >> INV_SHIFT] << 8
+                   | inv[((int) rb & 0xFFFF) >> INV_SHIFT];
+        }
+    }
+
+    /**
+     * SRC_OVER blending in the CIE Lab space (D65) using LUTs only (no pow or
+     * cbrt calls per pixel): the Lab conversions of the last source and
+     * destination colors are cached as paint colors are often constant.
+     * This blender is stateful so every BlendingContext has its own instance.
+     */
+    private final static class BlenderSrcOverLab extends BlendComposite.Blender {
+
+        // sRGB (8 bits) to linear RGB:
+        private final static float[] SRGB_TO_LINEAR = new float[256];
+        // lab_f_to(t) sampled on [0; 1] (linear interpolation):
+        private final static int LAB_F_SIZE = 4096;
+        private final static float[] LAB_F = new float[LAB_F_SIZE + 2];
+        // linear RGB (12 bits) to sRGB (8 bits):
+        private final static int[] LINEAR_INV = linear_LUT.inv;
+        private final static int INV_SIZE = LINEAR_INV.length;
+
+        static {
+            for (int i = 0; i < 256; i++) {
+                SRGB_TO_LINEAR[i] = sRGB_to_RGB(i / 255f);
+            }
+            for (int i = 0; i <= LAB_F_SIZE; i++) {
+                LAB_F[i] = lab_f_to(((float) i) / LAB_F_SIZE);
+            }
+            // padding for interpolation at t = 1:
+            LAB_F[LAB_F_SIZE + 1] = LAB_F[LAB_F_SIZE];
+        }
+
+        // cached Lab values of the last source & destination colors:
+        private int srcKey, dstKey;
+        private final float[] srcLab = new float[3];
+        private final float[] dstLab = new float[3];
+
+        BlenderSrcOverLab() {
+            init();
+        }
+
+        BlenderSrcOverLab init() {
+            // invalid keys (colors are 24 bits):
+            srcKey = -1;
+            dstKey = -1;
+            return this; // fluent API
+        }
+
+        @Override
+        public void blend(final int[] srcSpan, final int srcOff,
+                          final int[] dstSpan, final int dstOff,
+                          final byte[] mask, final int maskOff,
+                          final int len) {
+            int alpha;
+            for (int i = 0; i < len; i++) {
+                alpha = mask[maskOff + i] & 0xFF;
+
+                if (alpha != 0) {
+                    dstSpan[dstOff + i] = blendPixel(srcSpan[srcOff + i],
+                                                     dstSpan[dstOff + i], alpha);
+                }
+            }
+        }
+
+        @Override
+        public void blend(final int[] srcSpan, final int srcOff,
+                          final int[] dstSpan, final int dstOff,
+                          final int[] maskSpan, final int maskOff,
+                          final int[] outSpan, final int outOff,
+                          final int len) {
+            final boolean copyDst = (outSpan != dstSpan);
+            int alpha;
+            for (int i = 0; i < len; i++) {
+                alpha = maskSpan[maskOff + i];
+
+                if (alpha != 0) {
+                    outSpan[outOff + i] = blendPixel(srcSpan[srcOff + i],
+                                                     dstSpan[dstOff + i], alpha);
+                } else if (copyDst) {
+                    // mask = 0: keep the destination pixel
+                    outSpan[outOff + i] = dstSpan[dstOff + i];
+                }
+            }
+        }
+
+        private int blendPixel(final int src, final int dst, final int mask) {
+            // alpha = mask * src_alpha / 255 (rounded):
+            int alpha = mask * (src >>> 24) + 0x80;
+            alpha = (alpha + (alpha >> 8)) >> 8;
+
+            if (alpha == 255) {
+                return src;
+            }
+            if (alpha == 0) {
+                return dst;
+            }
+            final float[] s = srcLab;
+            final float[] d = dstLab;
+
+            int rgb = src & 0xFFFFFF;
+            if (rgb != srcKey) {
+                srcKey = rgb;
+                toLab(rgb, s);
+            }
+            rgb = dst & 0xFFFFFF;
+            if (rgb != dstKey) {
+                dstKey = rgb;
+                toLab(rgb, d);
+            }
+
+            final float src_alpha = alpha * (1f / 255f);
+
+            return 0xFF000000 | toRGB(d[0] + src_alpha * (s[0] - d[0]),
+                                      d[1] + src_alpha * (s[1] - d[1]),
+                                      d[2] + src_alpha * (s[2] - d[2]));
+        }
+
+        private static float lab_f(final float t) {
+            // linear interpolation in the LAB_F table:
+            float x = t * LAB_F_SIZE;
+            if (x <= 0f) {
+                return LAB_F[0];
+            }
+            if (x >= LAB_F_SIZE) {
+                x = LAB_F_SIZE;
+            }
+            final int i = (int) x;
+            final float f0 = LAB_F[i];
+            return f0 + (x - i) * (LAB_F[i + 1] - f0);
+        }
+
+        private static void toLab(final int rgb, final float[] Lab) {
+            final float r = SRGB_TO_LINEAR[(rgb >> 16) & 0xFF];
+            final float g = SRGB_TO_LINEAR[(rgb >> 8) & 0xFF];
+            final float b = SRGB_TO_LINEAR[(rgb) & 0xFF];
+
+            // sRGB -> XYZ (D65) divided by the white point:
+            final float fx = lab_f((0.4124564f * r + 0.3575761f * g + 0.1804375f * b) * (1.0f / 0.95047f));
+            final float fy = lab_f((0.2126729f * r + 0.7151522f * g + 0.0721750f * b));
+            final float fz = lab_f((0.0193339f * r + 0.1191920f * g + 0.9503041f * b) * (1.0f / 1.08883f));
+
+            Lab[0] = 116.0f * fy - 16.0f;
+            Lab[1] = 500.0f * (fx - fy);
+            Lab[2] = 200.0f * (fy - fz);
+        }
+
+        private static int toRGB(final float L, final float a, final float b) {
+            final float fy = (L + 16.0f) / 116.0f;
+
+            final float x = 0.95047f * lab_f_inv(a / 500.0f + fy);
+            final float y = lab_f_inv(fy);
+            final float z = 1.08883f * lab_f_inv(fy - b / 200.0f);
+
+            // XYZ -> linear sRGB (D65):
+            return toSRGB(3.2404542f * x - 1.5371385f * y - 0.4985314f * z) << 16
+                   | toSRGB(-0.9692660f * x + 1.8760108f * y + 0.0415560f * z) << 8
+                   | toSRGB(0.0556434f * x - 0.2040259f * y + 1.0572252f * z);
+        }
+
+        private static int toSRGB(final float c) {
+            final int i = (int) (c * INV_SIZE);
+            if (i <= 0) {
+                return LINEAR_INV[0];
             }
+            return LINEAR_INV[(i < INV_SIZE) ? i : (INV_SIZE - 1)];
         }
     }
 
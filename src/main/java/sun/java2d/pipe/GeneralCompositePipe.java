@@ -25,6 +25,7 @@
 package sun.java2d.pipe;
 
 import java.awt.AlphaComposite;
+import java.awt.Color;
 import java.awt.CompositeContext;
 import java.awt.PaintContext;
 import java.awt.Rectangle;
@@ -33,6 +34,7 @@ import java.awt.RenderingHints;
 import java.awt.image.ColorModel;
 import java.awt.image.BufferedImage;
 import java.awt.image.Raster;
+import java.awt.image.SampleModel;
 import java.awt.image.WritableRaster;
 import sun.awt.image.BufImgSurfaceData;
 import sun.awt.image.IntegerInterleavedRaster;
@@ -63,8 +65,19 @@ public class GeneralCompositePipe implements CompositePipe {
         Object pipeState;
         // LBO: cached values
         boolean isBlendComposite;
+        // solid color paint (no paint context):
+        boolean isSolid;
+        int solidPixel;
         int[] maskStride = new int[32];
+        // cached tile raster (dirty) and its key (source sample model):
         WritableRaster raster = null;
+        SampleModel rasterSampleModel = null;
+        // cached child raster matching the last tile size:
+        WritableRaster rasterChild = null;
+        // cached image & surface wrapping the tile raster (blit path):
+        BufferedImage rasterImage = null;
+        ColorModel rasterImageModel = null;
+        SurfaceData rasterData = null;
 
         TileContext() {
             // ThreadLocal constructor
@@ -78,6 +91,12 @@ public class GeneralCompositePipe implements CompositePipe {
             compCtxt = cCtx;
             compModel = cModel;
             isBlendComposite = blendComposite;
+            isSolid = false;
+        }
+
+        void initSolid(final int pixel) {
+            isSolid = true;
+            solidPixel = pixel;
         }
 
         int[] getMaskStride(final int len) {
@@ -91,23 +110,57 @@ public class GeneralCompositePipe implements CompositePipe {
             return t;
         }
 
-        WritableRaster getDirtyWritableRaster(Raster in) {
-            // buggy !!
+        /**
+         * Return a dirty writable raster compatible with the given raster
+         * (w x h) reusing the cached tile raster if it has the same sample
+         * model and is large enough.
+         * Warning: its content is undefined (previous tile)
+         */
+        WritableRaster getDirtyWritableRaster(final Raster in,
+                                              final int w, final int h)
+        {
+            final SampleModel sm = in.getSampleModel();
             WritableRaster r = raster;
-            if ((r == null)
-                    || (raster.getClass() != in.getClass())
-                    || (raster.getWidth() == in.getWidth())
-                    || (raster.getHeight() == in.getHeight())) {
-                raster = r = in.createCompatibleWritableRaster(
-                        /*
-                        Math.max(in.getWidth(), 32),
-                        Math.max(in.getHeight(), 32)
-                        */
-                        );
-
-                System.out.println("raster = " + raster);
+            final boolean sameModel = (rasterSampleModel == sm)
+                    || ((r != null) && sm.equals(rasterSampleModel));
+            if ((r == null) || !sameModel
+                    || (r.getWidth() < w)
+                    || (r.getHeight() < h)) {
+                // grow the cached raster (tiles have mostly the same size):
+                final int rw = sameModel ? Math.max(w, r.getWidth()) : w;
+                final int rh = sameModel ? Math.max(h, r.getHeight()) : h;
+
+                raster = r = in.createCompatibleWritableRaster(rw, rh);
+                rasterSampleModel = sm;
+                rasterChild = null;
+                rasterImage = null;
+                rasterData = null;
+            }
+            if ((r.getWidth() == w) && (r.getHeight() == h)) {
+                return r;
+            }
+            // child raster sharing the cached data buffer:
+            WritableRaster c = rasterChild;
+            if ((c == null) || (c.getWidth() != w) || (c.getHeight() != h)) {
+                rasterChild = c = r.createWritableChild(0, 0, w, h, 0, 0, null);
+            }
+            return c;
+        }
+
+        /**
+         * Return the surface data wrapping the cached tile raster
+         * (see getDirtyWritableRaster) for the given color model
+         */
+        SurfaceData getRasterSurfaceData(final ColorModel cm) {
+            SurfaceData sd = rasterData;
+            if ((sd == null) || (rasterImageModel != cm)) {
+                rasterImage = new BufferedImage(cm, raster,
+                                                cm.isAlphaPremultiplied(),
+                                                null);
+                rasterImageModel = cm;
+                rasterData = sd = BufImgSurfaceData.createData(rasterImage);
             }
-            return r;
+            return sd;
         }
     }
 
@@ -117,6 +170,31 @@ public class GeneralCompositePipe implements CompositePipe {
         // warning: clone map:
         RenderingHints hints = sg.getRenderingHints();
         ColorModel model = sg.getDeviceColorModel();
+
+        // BlendComposite matcher: classpath independent so use String.equals()
+        boolean blendComposite = "sun.java2d.pipe.BlendComposite".equals(sg.composite.getClass().getName());
+
+        // use ThreadLocal (to reduce memory footprint):
+        final TileContext tc = tileContextThreadLocal.get();
+
+        // solid color fast path: BlendComposite blends the constant color
+        // directly into INT rasters (no paint context nor source raster):
+        if (blendComposite && (sg.paint instanceof Color)
+                && (sg.getSurfaceData().getRaster(devR.x, devR.y,
+                        devR.width, devR.height) instanceof IntegerInterleavedRaster)) {
+            // Color paint context uses the default RGB color model:
+            CompositeContext compositeContext =
+                    sg.composite.createContext(ColorModel.getRGBdefault(),
+                    model, hints);
+
+            if (compositeContext instanceof BlendComposite.BlendingContext) {
+                tc.init(sg, null, compositeContext, model, blendComposite);
+                tc.initSolid(((Color) sg.paint).getRGB());
+                return tc;
+            }
+            compositeContext.dispose();
+        }
+
         PaintContext paintContext =
                 sg.paint.createContext(model, devR, s.getBounds2D(),
                 sg.cloneTransform(),
@@ -125,11 +203,6 @@ public class GeneralCompositePipe implements CompositePipe {
                 sg.composite.createContext(paintContext.getColorModel(), model,
                 hints);
 
-        // BlendComposite matcher: classpath independent so use String.equals()
-        boolean blendComposite = "sun.java2d.pipe.BlendComposite".equals(sg.composite.getClass().getName());
-
-        // use ThreadLocal (to reduce memory footprint):
-        final TileContext tc = tileContextThreadLocal.get();
         tc.init(sg, paintContext, compositeContext, model, blendComposite);
         return tc;
     }
@@ -152,49 +225,69 @@ public class GeneralCompositePipe implements CompositePipe {
         SunGraphics2D sg = context.sunG2D;
         boolean blendComposite = context.isBlendComposite;
 
-        Raster srcRaster = paintCtxt.getRaster(x, y, w, h);
-
         Raster dstRaster;
         Raster dstIn;
         WritableRaster dstOut;
 
         SurfaceData sd = sg.getSurfaceData();
         dstRaster = sd.getRaster(x, y, w, h);
-        if (dstRaster instanceof WritableRaster && atile == null) {
+
+        if (context.isSolid) {
+            if (dstRaster instanceof IntegerInterleavedRaster) {
+                // blend the solid color with the mask tile directly:
+                ((BlendComposite.BlendingContext) compCtxt).blendSolid(
+                        context.solidPixel, atile, offset, tilesize,
+                        (IntegerInterleavedRaster) dstRaster, x, y, w, h);
+                return;
+            }
+            if (paintCtxt == null) {
+                // unexpected raster: use the general path (constant paint):
+                context.paintCtxt = paintCtxt = sg.paint.createContext(
+                        ColorModel.getRGBdefault(), null, null, null, null);
+            }
+        }
+
+        Raster srcRaster = paintCtxt.getRaster(x, y, w, h);
+        // BlendComposite reads the mask from dstOut so it can not be dstIn:
+        if (dstRaster instanceof WritableRaster && atile == null
+                && !blendComposite) {
             dstOut = (WritableRaster) dstRaster;
             dstOut = dstOut.createWritableChild(x, y, w, h, 0, 0, null);
             dstIn = dstOut;
         } else {
             dstIn = dstRaster.createChild(x, y, w, h, 0, 0, null);
 
-            // TODO: cache such raster as it is very costly (int[])
-            dstOut = dstIn.createCompatibleWritableRaster();
-//            dstOut = context.getDirtyWritableRaster(dstIn);
+            // reuse the cached raster (per thread):
+            dstOut = context.getDirtyWritableRaster(dstIn, w, h);
         }
 
         if (blendComposite) {
             // define mask alpha into dstOut:
+            if (dstOut instanceof IntegerInterleavedRaster) {
+                // fast path: write the mask directly into the int[] storage:
+                final IntegerInterleavedRaster outRaster = (IntegerInterleavedRaster) dstOut;
+                final int[] outPixels = outRaster.getDataStorage();
+                final int outScan = outRaster.getScanlineStride();
+                int outOff = outRaster.getDataOffset(0);
 
-            // INT_RGBA only: TODO: check raster format !
-            final int[] maskPixels = context.getMaskStride(w);
-
-            // atile = null means mask=255 (src opacity full)
-            if (atile == null) {
-                for (int i = 0; i < w; i++) {
-                    maskPixels[i] = 0xFF /*  << 24 */;
-                }
-                for (int j = 0; j < h; j++) {
-                    // TODO: find most efficient method:
-                    dstOut.setDataElements(0, j, w, 1, maskPixels);
-                }
-            } else {
-                for (int j = 0; j < h; j++) {
-                    for (int i = 0; i < w; i++) {
-                        maskPixels[i] = atile[ j * tilesize + (i + offset)] & 0xFF /*  << 24 */;
+                // atile = null means mask=255 (src opacity full)
+                if (atile == null) {
+                    for (int j = 0; j < h; j++, outOff += outScan) {
+                        for (int i = 0; i < w; i++) {
+                            outPixels[outOff + i] = 0xFF;
+                        }
+                    }
+                } else {
+                    int maskOff = offset;
+                    for (int j = 0; j < h; j++, outOff += outScan, maskOff += tilesize) {
+                        for (int i = 0; i < w; i++) {
+                            outPixels[outOff + i] = atile[maskOff + i] & 0xFF;
+                        }
                     }
-                    // TODO: find most efficient method:
-                    dstOut.setDataElements(0, j, w, 1, maskPixels);
                 }
+                outRaster.markDirty();
+            } else {
+                writeMask(context, dstOut, atile, offset, tilesize, w, h);
             }
         }
         compCtxt.compose(srcRaster, dstIn, dstOut);
@@ -202,15 +295,18 @@ public class GeneralCompositePipe implements CompositePipe {
         if (dstRaster != dstOut && dstOut.getParent() != dstRaster) {
             if (dstRaster instanceof WritableRaster
                     && ((atile == null) || blendComposite)) {
-                // TODO: find most efficient method to copy between rasters (use transfer type ?)
-                ((WritableRaster) dstRaster).setDataElements(x, y, dstOut);
+                if ((dstRaster instanceof IntegerInterleavedRaster)
+                        && (dstOut instanceof IntegerInterleavedRaster)) {
+                    // fast path: copy rows between int[] storages:
+                    copyRows((IntegerInterleavedRaster) dstOut,
+                             (IntegerInterleavedRaster) dstRaster, x, y, w, h);
+                } else {
+                    ((WritableRaster) dstRaster).setDataElements(x, y, dstOut);
+                }
             } else {
-                ColorModel cm = sg.getDeviceColorModel();
-                BufferedImage resImg =
-                        new BufferedImage(cm, dstOut,
-                        cm.isAlphaPremultiplied(),
-                        null);
-                SurfaceData resData = BufImgSurfaceData.createData(resImg);
+                // dstOut is the cached raster (or its child at 0,0):
+                SurfaceData resData = context.getRasterSurfaceData(
+                        sg.getDeviceColorModel());
                 if (atile == null) {
                     Blit blit = Blit.getFromCache(resData.getSurfaceType(),
                             CompositeType.SrcNoEa,
@@ -229,6 +325,58 @@ public class GeneralCompositePipe implements CompositePipe {
         }
     }
 
+    /**
+     * Write the mask alpha values [0; 255] into the given raster (generic path)
+     */
+    private static void writeMask(final TileContext context,
+                                  final WritableRaster dstOut,
+                                  final byte[] atile, final int offset,
+                                  final int tilesize, final int w, final int h) {
+        // INT_RGBA only: TODO: check raster format !
+        final int[] maskPixels = context.getMaskStride(w);
+
+        // atile = null means mask=255 (src opacity full)
+        if (atile == null) {
+            for (int i = 0; i < w; i++) {
+                maskPixels[i] = 0xFF /*  << 24 */;
+            }
+            for (int j = 0; j < h; j++) {
+                dstOut.setDataElements(0, j, w, 1, maskPixels);
+            }
+        } else {
+            for (int j = 0; j < h; j++) {
+                for (int i = 0; i < w; i++) {
+                    maskPixels[i] = atile[ j * tilesize + (i + offset)] & 0xFF /*  << 24 */;
+                }
+                dstOut.setDataElements(0, j, w, 1, maskPixels);
+            }
+        }
+    }
+
+    /**
+     * Copy the given (w x h) source raster into the destination raster at
+     * (x, y) using System.arraycopy on their int[] storages
+     */
+    private static void copyRows(final IntegerInterleavedRaster src,
+                                 final IntegerInterleavedRaster dst,
+                                 final int x, final int y,
+                                 final int w, final int h) {
+        final int[] srcPixels = src.getDataStorage();
+        final int[] dstPixels = dst.getDataStorage();
+        final int srcScan = src.getScanlineStride();
+        final int dstScan = dst.getScanlineStride();
+
+        int srcOff = src.getDataOffset(0);
+        int dstOff = dst.getDataOffset(0)
+                     + (y - dst.getMinY()) * dstScan + (x - dst.getMinX());
+
+        for (int j = 0; j < h; j++, srcOff += srcScan, dstOff += dstScan) {
+            System.arraycopy(srcPixels, srcOff, dstPixels, dstOff, w);
+        }
+        // data storage was modified directly:
+        dst.markDirty();
+    }
+
     @Override
     public void skipTile(Object ctx, int x, int y) {
     }
@@ -0,0 +1,97 @@
+package marlin;
+
+import java.awt.BasicStroke;
+import java.awt.Shape;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Ellipse2D;
+import java.awt.geom.Path2D;
+import java.util.Arrays;
+import java.util.Random;
+import org.marlin.geom.QuantizedPath2D;
+import org.marlin.pisces.MarlinPreparedShape;
+import org.marlin.pisces.MarlinRasterizer;
+
+/**
+ * Checks that shapes having large (map scale) coordinates are transformed
+ * by their own path iterator (double precision) before rendering: the mask
+ * of the shape drawn with the transform must be the same than the mask of
+ * its transformed path iterator (float coordinates) drawn without transform.
+ *
+ * @author bourgesl
+ */
+public class LargeCoordinatesTest {
+
+    private static final int SIZE = 150;
+
+    // map scale origin:
+    private static final double X0 = 5e6;
+    private static final double Y0 = -3e6;
+
+    private static final double SCALE = 10.0;
+
+    public static void main(String[] args) {
+        final Random r = new Random(6789L);
+
+        final Path2D.Double path = new Path2D.Double();
+        path.moveTo(X0 + 1.0, Y0 + 1.0);
+        for (int i = 0; i < 40; i++) {
+            path.lineTo(X0 + r.nextDouble() * SIZE / SCALE,
+                        Y0 + r.nextDouble() * SIZE / SCALE);
+        }
+        path.closePath();
+
+        final Shape[] shapes = new Shape[]{
+            new QuantizedPath2D(path, 1e-6),
+            new Ellipse2D.Double(X0 + 0.37, Y0 + 0.21, 12.3456, 9.8765)
+        };
+        final BasicStroke[] strokes = new BasicStroke[]{
+            null, new BasicStroke(0.25f)
+        };
+        final AffineTransform at = new AffineTransform(SCALE, 0.0, 0.0, SCALE,
+                                                       -X0 * SCALE + 0.3,
+                                                       -Y0 * SCALE + 0.7);
+        final AffineTransform rot = new AffineTransform(at);
+        rot.preConcatenate(AffineTransform.getRotateInstance(0.1, 75.0, 75.0));
+
+        int errors = 0;
+        for (Shape shape : shapes) {
+            for (AffineTransform tx : new AffineTransform[]{at, rot}) {
+                // reference: transformed path iterator (float coordinates)
+                final Path2D.Float ref = new Path2D.Float();
+                ref.append(shape.getPathIterator(tx), false);
+
+                for (BasicStroke stroke : strokes) {
+                    // strokes are drawn in user space (scaled width):
+                    final BasicStroke devStroke = (stroke == null) ? null
+                        : new BasicStroke(stroke.getLineWidth() * (float) SCALE);
+
+                    final byte[] expected = mask(ref, null, devStroke);
+
+                    for (Shape s : new Shape[]{
+                            shape, new MarlinPreparedShape(shape)})
+                    {
+                        if (!Arrays.equals(expected, mask(s, tx, stroke))) {
+                            System.out.println(s.getClass().getSimpleName()
+                                               + " at=" + tx + " stroke="
+                                               + stroke + ": different masks");
+                            errors++;
+                        }
+                    }
+                }
+            }
+        }
+        if (errors != 0) {
+            throw new IllegalStateException(errors + " failures");
+        }
+        System.out.println("LargeCoordinatesTest: OK");
+    }
+
+    private static byte[] mask(final Shape shape, final AffineTransform at,
+                               final BasicStroke stroke)
+    {
+        final byte[] mask = new byte[SIZE * SIZE];
+        MarlinRasterizer.renderMask(shape, at, stroke, mask, 0, SIZE,
+                                    0, 0, SIZE, SIZE);
+        return mask;
+    }
+}
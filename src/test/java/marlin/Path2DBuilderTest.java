@@ -0,0 +1,146 @@
+package marlin;
+
+import java.awt.BasicStroke;
+import java.awt.Shape;
+import java.awt.geom.Path2D;
+import java.awt.geom.PathIterator;
+import java.util.Arrays;
+import java.util.Random;
+import org.marlin.geom.Path2DBuilder;
+import org.marlin.pisces.MarlinRasterizer;
+
+/**
+ * Checks that a Path2DBuilder (chunked path) gives the same segments and the
+ * same coverage masks than the equivalent java.awt.geom.Path2D.Float:
+ * single and bulk lineTo crossing chunk boundaries, consecutive moveTo
+ * (replacing the previous point) and builder reuse after reset().
+ *
+ * @author bourgesl
+ */
+public class Path2DBuilderTest {
+
+    private static final int SIZE = 200;
+
+    public static void main(String[] args) {
+        final Random r = new Random(4567L);
+        final Path2DBuilder builder = new Path2DBuilder();
+
+        final BasicStroke[] strokes = new BasicStroke[]{
+            null, new BasicStroke(2.5f)
+        };
+
+        int errors = 0;
+        // large path first then smaller ones (reused chunks after reset):
+        for (int n : new int[]{3000, 40, 700, 1}) {
+            final Path2D.Float path = new Path2D.Float();
+            builder.reset();
+
+            build(r, n, path, builder);
+
+            if (!sameSegments(path, builder)) {
+                System.out.println("path[" + n + "]: different segments");
+                errors++;
+            }
+            for (BasicStroke stroke : strokes) {
+                if (!Arrays.equals(mask(path, stroke), mask(builder, stroke))) {
+                    System.out.println("path[" + n + "] stroke=" + stroke
+                                       + ": different masks");
+                    errors++;
+                }
+            }
+        }
+        if (errors != 0) {
+            throw new IllegalStateException(errors + " failures");
+        }
+        System.out.println("Path2DBuilderTest: OK");
+    }
+
+    private static void build(final Random r, final int n,
+                              final Path2D.Float path,
+                              final Path2DBuilder builder)
+    {
+        final float[] xy = new float[2 * 150];
+        final float[] c = new float[6];
+
+        next(r, c, 2);
+        path.moveTo(c[0], c[1]);
+        builder.moveTo(c[0], c[1]);
+
+        for (int i = 0; i < n; i++) {
+            switch (r.nextInt(7)) {
+                case 0:
+                    // consecutive moveTo (the last one is kept):
+                    for (int j = 0, m = 1 + r.nextInt(3); j < m; j++) {
+                        next(r, c, 2);
+                        path.moveTo(c[0], c[1]);
+                        builder.moveTo(c[0], c[1]);
+                    }
+                    break;
+                case 1:
+                    // bulk lineTo (crossing chunk boundaries):
+                    final int m = 1 + r.nextInt(150);
+                    next(r, xy, 2 * m);
+                    for (int j = 0; j < 2 * m; j += 2) {
+                        path.lineTo(xy[j], xy[j + 1]);
+                    }
+                    builder.lineTo(xy, 0, m);
+                    break;
+                case 2:
+                    next(r, c, 4);
+                    path.quadTo(c[0], c[1], c[2], c[3]);
+                    builder.quadTo(c[0], c[1], c[2], c[3]);
+                    break;
+                case 3:
+                    next(r, c, 6);
+                    path.curveTo(c[0], c[1], c[2], c[3], c[4], c[5]);
+                    builder.curveTo(c[0], c[1], c[2], c[3], c[4], c[5]);
+                    break;
+                case 4:
+                    path.closePath();
+                    builder.closePath();
+                    break;
+                default:
+                    next(r, c, 2);
+                    path.lineTo(c[0], c[1]);
+                    builder.lineTo(c[0], c[1]);
+            }
+        }
+    }
+
+    private static void next(final Random r, final float[] c, final int n) {
+        for (int i = 0; i < n; i++) {
+            c[i] = r.nextFloat() * SIZE;
+        }
+    }
+
+    private static boolean sameSegments(final Shape expected,
+                                        final Shape actual)
+    {
+        final PathIterator pe = expected.getPathIterator(null);
+        final PathIterator pa = actual.getPathIterator(null);
+
+        if (pe.getWindingRule() != pa.getWindingRule()) {
+            return false;
+        }
+        final float[] ce = new float[6];
+        final float[] ca = new float[6];
+
+        for (; !pe.isDone() && !pa.isDone(); pe.next(), pa.next()) {
+            Arrays.fill(ce, 0f);
+            Arrays.fill(ca, 0f);
+            if (pe.currentSegment(ce) != pa.currentSegment(ca)
+                || !Arrays.equals(ce, ca))
+            {
+                return false;
+            }
+        }
+        return pe.isDone() && pa.isDone();
+    }
+
+    private static byte[] mask(final Shape shape, final BasicStroke stroke) {
+        final byte[] mask = new byte[SIZE * SIZE];
+        MarlinRasterizer.renderMask(shape, null, stroke, mask, 0, SIZE,
+                                    0, 0, SIZE, SIZE);
+        return mask;
+    }
+}
@@ -0,0 +1,111 @@
+package marlin;
+
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.Shape;
+import java.awt.geom.Path2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Random;
+import org.marlin.pisces.MarlinPreparedShape;
+
+/**
+ * Checks that rendering a MarlinPreparedShape (cached edges replayed at
+ * integer pixel offsets) gives the same pixels than the wrapped shape
+ * (within few subpixels as float rounding depends on coordinate magnitudes).
+ *
+ * @author bourgesl
+ */
+public class PreparedShapeTest {
+
+    private static final int SIZE = 300;
+
+    // max alpha difference (4 subpixels in 8x8 subpixels):
+    private static final int TOLERANCE = 16;
+
+    public static void main(String[] args) {
+        final Random r = new Random(12345L);
+
+        final Path2D.Float path = new Path2D.Float();
+        path.moveTo(10.25f, 20.5f);
+        for (int i = 0; i < 50; i++) {
+            if ((i % 3) == 0) {
+                path.quadTo(r.nextFloat() * SIZE, r.nextFloat() * SIZE,
+                            r.nextFloat() * SIZE, r.nextFloat() * SIZE);
+            } else {
+                path.lineTo(r.nextFloat() * SIZE, r.nextFloat() * SIZE);
+            }
+        }
+        path.closePath();
+
+        final MarlinPreparedShape prepared = new MarlinPreparedShape(path);
+
+        final BasicStroke[] strokes = new BasicStroke[]{
+            null, new BasicStroke(5f),
+            new BasicStroke(2f, BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND,
+                            10f, new float[]{8f, 3f}, 0f)
+        };
+        final int[][] offsets = new int[][]{
+            {0, 0}, {17, -3}, {-120, 45}, {250, 250}, {-SIZE, 7}, {3, -200}
+        };
+
+        int errors = 0;
+        for (BasicStroke stroke : strokes) {
+            prepared.invalidate();
+
+            for (int[] off : offsets) {
+                final int[] expected = paint(path, stroke, off[0], off[1]);
+                final int[] actual = paint(prepared, stroke, off[0], off[1]);
+
+                int diffs = 0, maxDiff = 0, d;
+                for (int i = 0; i < expected.length; i++) {
+                    if (expected[i] != actual[i]) {
+                        diffs++;
+                        d = Math.abs((expected[i] >>> 24) - (actual[i] >>> 24));
+                        if (d > maxDiff) {
+                            maxDiff = d;
+                        }
+                    }
+                }
+                if (maxDiff > TOLERANCE) {
+                    System.out.println("stroke=" + stroke + " offset=("
+                                       + off[0] + ", " + off[1] + "): "
+                                       + diffs + " different pixels (max = "
+                                       + maxDiff + ")");
+                    errors++;
+                }
+            }
+        }
+        if (errors != 0) {
+            throw new IllegalStateException(errors + " failures");
+        }
+        System.out.println("PreparedShapeTest: OK");
+    }
+
+    private static int[] paint(final Shape shape, final BasicStroke stroke,
+                               final int dx, final int dy)
+    {
+        final BufferedImage image = new BufferedImage(SIZE, SIZE,
+                                                      BufferedImage.TYPE_INT_ARGB);
+
+        final Graphics2D g2d = (Graphics2D) image.getGraphics();
+        try {
+            g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING,
+                                 RenderingHints.VALUE_ANTIALIAS_ON);
+            g2d.setColor(Color.BLUE);
+            g2d.translate(dx, dy);
+
+            if (stroke == null) {
+                g2d.fill(shape);
+            } else {
+                g2d.setStroke(stroke);
+                g2d.draw(shape);
+            }
+        } finally {
+            g2d.dispose();
+        }
+        return ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+    }
+}
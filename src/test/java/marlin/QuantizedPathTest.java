@@ -0,0 +1,182 @@
+package marlin;
+
+import java.awt.Shape;
+import java.awt.geom.Path2D;
+import java.awt.geom.PathIterator;
+import java.util.Random;
+import org.marlin.geom.QuantizedPath2D;
+
+/**
+ * Checks the QuantizedPath2D round trip (coordinate error at most step / 2
+ * for the default and explicit steps, same segment types), its encoded size
+ * (1 byte per run of up to 32 segments, 1 or 2 bytes per coordinate delta)
+ * and that NaN or infinite coordinates, extents or steps are rejected.
+ *
+ * @author bourgesl
+ */
+public class QuantizedPathTest {
+
+    private static final double SIZE = 1000.0;
+
+    public static void main(String[] args) {
+        final Random r = new Random(5678L);
+
+        int errors = 0;
+
+        // round trip:
+        final Path2D.Double path = new Path2D.Double();
+        path.moveTo(SIZE * r.nextDouble(), SIZE * r.nextDouble());
+        for (int i = 0; i < 2000; i++) {
+            switch (r.nextInt(6)) {
+                case 0:
+                    path.quadTo(SIZE * r.nextDouble(), SIZE * r.nextDouble(),
+                                SIZE * r.nextDouble(), SIZE * r.nextDouble());
+                    break;
+                case 1:
+                    path.curveTo(SIZE * r.nextDouble(), SIZE * r.nextDouble(),
+                                 SIZE * r.nextDouble(), SIZE * r.nextDouble(),
+                                 SIZE * r.nextDouble(), SIZE * r.nextDouble());
+                    break;
+                case 2:
+                    path.closePath();
+                    path.moveTo(SIZE * r.nextDouble(), SIZE * r.nextDouble());
+                    break;
+                default:
+                    path.lineTo(SIZE * r.nextDouble(), SIZE * r.nextDouble());
+            }
+        }
+        for (double step : new double[]{-1.0, 0.001, 0.37, 5.0}) {
+            final QuantizedPath2D qp = (step > 0.0)
+                                       ? new QuantizedPath2D(path, step)
+                                       : new QuantizedPath2D(path);
+            if (step > 0.0 && qp.getStep() != step) {
+                System.out.println("step=" + step + ": getStep() = "
+                                   + qp.getStep());
+                errors++;
+            }
+            final double maxErr = maxError(path, qp);
+            if (!(maxErr <= 0.5 * qp.getStep() * (1.0 + 1e-9))) {
+                System.out.println("step=" + qp.getStep() + ": max error = "
+                                   + maxErr);
+                errors++;
+            }
+        }
+
+        // encoded size and type run boundaries (32 segments per run):
+        for (int n : new int[]{1, 31, 32, 33, 63, 64, 65, 100}) {
+            for (int delta : new int[]{63, 8191}) {
+                // zigzag polyline on the grid (step 1) between (0, 0) and
+                // (delta, delta): deltas are +/- delta
+                final Path2D.Float line = new Path2D.Float();
+                line.moveTo(0f, 0f);
+                for (int i = 1; i <= n; i++) {
+                    final float v = ((i & 1) != 0) ? delta : 0f;
+                    line.lineTo(v, v);
+                }
+                line.closePath();
+
+                final QuantizedPath2D qp = new QuantizedPath2D(line, 1.0);
+
+                // runs: moveTo, lineTo (32 per run), close
+                final int runs = 1 + (n + 31) / 32 + 1;
+                // zigzag varints: 1 byte up to 63, 2 bytes up to 8191
+                final int bytes = (delta < 64) ? 1 : 2;
+                final int expected = runs + 2 + 2 * n * bytes;
+
+                if (qp.getEncodedSize() != expected
+                    || qp.getNumTypes() != n + 2
+                    || maxError(line, qp) != 0.0)
+                {
+                    System.out.println("lines=" + n + " delta=" + delta
+                                       + ": encoded size = "
+                                       + qp.getEncodedSize() + " (expected "
+                                       + expected + ") types = "
+                                       + qp.getNumTypes());
+                    errors++;
+                }
+            }
+        }
+
+        // non-finite coordinates:
+        final double[] invalid = new double[]{
+            Double.NaN, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY
+        };
+        for (double v : invalid) {
+            final Path2D.Double p = new Path2D.Double();
+            p.moveTo(0.0, 0.0);
+            p.lineTo(10.0, 10.0);
+            p.quadTo(5.0, v, 20.0, 20.0);
+
+            if (!rejected(p, -1.0) || !rejected(p, 0.5)) {
+                System.out.println("coordinate " + v + " not rejected");
+                errors++;
+            }
+        }
+
+        // extent overflow (infinite width) and infinite step:
+        final Path2D.Double huge = new Path2D.Double();
+        huge.moveTo(-1e308, 0.0);
+        huge.lineTo(1e308, 1.0);
+        if (!rejected(huge, -1.0) || !rejected(huge, 1e300)) {
+            System.out.println("extent overflow not rejected");
+            errors++;
+        }
+        final Path2D.Double unit = new Path2D.Double();
+        unit.moveTo(0.0, 0.0);
+        unit.lineTo(1.0, 1.0);
+        if (!rejected(unit, Double.POSITIVE_INFINITY)) {
+            System.out.println("infinite step not rejected");
+            errors++;
+        }
+        // large but finite extent (default step):
+        final Path2D.Double large = new Path2D.Double();
+        large.moveTo(-1e307, 0.0);
+        large.lineTo(1e307, 1.0);
+        final QuantizedPath2D ql = new QuantizedPath2D(large);
+        final double lx = ql.getBounds2D().getWidth();
+        if (!(lx >= 2e307 * (1.0 - 1e-9) && lx <= 2e307 * (1.0 + 1e-9))) {
+            System.out.println("large extent: width = " + lx);
+            errors++;
+        }
+        if (errors != 0) {
+            throw new IllegalStateException(errors + " failures");
+        }
+        System.out.println("QuantizedPathTest: OK");
+    }
+
+    private static boolean rejected(final Shape s, final double step) {
+        try {
+            if (step > 0.0) {
+                new QuantizedPath2D(s, step);
+            } else {
+                new QuantizedPath2D(s);
+            }
+            return false;
+        } catch (IllegalArgumentException iae) {
+            return true;
+        }
+    }
+
+    // returns the max coordinate error or +Infinity if segment types differ:
+    private static double maxError(final Shape expected, final Shape actual) {
+        final PathIterator pe = expected.getPathIterator(null);
+        final PathIterator pa = actual.getPathIterator(null);
+
+        final double[] ce = new double[6];
+        final double[] ca = new double[6];
+        final int[] numCoords = new int[]{2, 2, 4, 6, 0};
+
+        double maxErr = 0.0;
+        for (; !pe.isDone() && !pa.isDone(); pe.next(), pa.next()) {
+            final int type = pe.currentSegment(ce);
+            if (pa.currentSegment(ca) != type) {
+                return Double.POSITIVE_INFINITY;
+            }
+            for (int i = 0; i < numCoords[type]; i++) {
+                maxErr = Math.max(maxErr, Math.abs(ce[i] - ca[i]));
+            }
+        }
+        return (pe.isDone() && pa.isDone()) ? maxErr
+               : Double.POSITIVE_INFINITY;
+    }
+}
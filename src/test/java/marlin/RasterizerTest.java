@@ -0,0 +1,201 @@
+package marlin;
+
+import java.awt.AlphaComposite;
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.Shape;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Ellipse2D;
+import java.awt.geom.Path2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Arrays;
+import java.util.Random;
+import org.marlin.pisces.MarlinRasterizer;
+
+/**
+ * Checks that MarlinRasterizer.render() gives the same INT_ARGB pixels than
+ * Graphics2D (antialiased fill and draw with the Marlin renderer) for
+ * transformed shapes, opaque or translucent colors and opaque or
+ * translucent destinations (within the SRC_OVER rounding errors) and that
+ * pixel rectangles not fitting in the pixel array are rejected.
+ *
+ * @author bourgesl
+ */
+public class RasterizerTest {
+
+    private static final int SIZE = 200;
+
+    // max difference per (premultiplied) component:
+    private static final int TOLERANCE = 1;
+
+    public static void main(String[] args) {
+        final Random r = new Random(2345L);
+
+        final Path2D.Float path = new Path2D.Float();
+        path.moveTo(20.25f, 30.5f);
+        for (int i = 0; i < 30; i++) {
+            if ((i % 4) == 0) {
+                path.curveTo(r.nextFloat() * SIZE, r.nextFloat() * SIZE,
+                             r.nextFloat() * SIZE, r.nextFloat() * SIZE,
+                             r.nextFloat() * SIZE, r.nextFloat() * SIZE);
+            } else {
+                path.lineTo(r.nextFloat() * SIZE, r.nextFloat() * SIZE);
+            }
+        }
+        path.closePath();
+
+        final Shape[] shapes = new Shape[]{
+            path, new Ellipse2D.Double(30.3, 40.7, 120.2, 90.9)
+        };
+        final BasicStroke[] strokes = new BasicStroke[]{
+            null, new BasicStroke(3.5f),
+            new BasicStroke(6f, BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND,
+                            10f, new float[]{12f, 5f}, 2f)
+        };
+        final AffineTransform[] transforms = new AffineTransform[]{
+            null,
+            AffineTransform.getTranslateInstance(-17.3, 11.6),
+            new AffineTransform(0.8, 0.3, -0.25, 1.1, 12.5, -8.25)
+        };
+        final int[] colors = new int[]{
+            0xFF2040C0, 0x80FF8000, 0x10FFFFFF
+        };
+        final int[] backgrounds = new int[]{
+            0xFFFFFFFF, 0x00000000, 0x8033CC66, 0x20000000
+        };
+
+        int errors = 0;
+        for (Shape shape : shapes) {
+            for (BasicStroke stroke : strokes) {
+                for (AffineTransform at : transforms) {
+                    for (int color : colors) {
+                        for (int bg : backgrounds) {
+                            final int[] expected
+                                = paint(shape, at, stroke, color, bg);
+                            final int[] actual
+                                = render(shape, at, stroke, color, bg);
+
+                            final int maxDiff = maxDiff(expected, actual);
+                            if (maxDiff > TOLERANCE) {
+                                System.out.println("shape=" + shape
+                                    + " stroke=" + stroke + " at=" + at
+                                    + " color=" + Integer.toHexString(color)
+                                    + " bg=" + Integer.toHexString(bg)
+                                    + ": max difference = " + maxDiff);
+                                errors++;
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        // invalid pixel rectangles {offset, scanline, width, height}:
+        final int[][] rects = new int[][]{
+            {-1, SIZE, SIZE, SIZE}, {0, SIZE - 1, SIZE, SIZE},
+            {1, SIZE, SIZE, SIZE}, {0, SIZE, SIZE, SIZE + 1}
+        };
+        final int[] pixels = new int[SIZE * SIZE];
+        for (int[] rect : rects) {
+            try {
+                MarlinRasterizer.render(shapes[1], null, null, pixels,
+                                        rect[0], rect[1], rect[2], rect[3],
+                                        0xFF000000);
+                System.out.println("rect=" + Arrays.toString(rect)
+                                   + ": not rejected");
+                errors++;
+            } catch (IllegalArgumentException iae) {
+                // expected
+            }
+        }
+        // the whole array is valid:
+        MarlinRasterizer.render(shapes[1], null, null, pixels, 0, SIZE,
+                                SIZE, SIZE, 0xFF000000);
+
+        if (errors != 0) {
+            throw new IllegalStateException(errors + " failures");
+        }
+        System.out.println("RasterizerTest: OK");
+    }
+
+    private static int[] paint(final Shape shape, final AffineTransform at,
+                               final BasicStroke stroke, final int color,
+                               final int bg)
+    {
+        final BufferedImage image = new BufferedImage(SIZE, SIZE,
+                                                      BufferedImage.TYPE_INT_ARGB);
+
+        final Graphics2D g2d = (Graphics2D) image.getGraphics();
+        try {
+            g2d.setComposite(AlphaComposite.Src);
+            g2d.setColor(new Color(bg, true));
+            g2d.fillRect(0, 0, SIZE, SIZE);
+
+            g2d.setComposite(AlphaComposite.SrcOver);
+            g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING,
+                                 RenderingHints.VALUE_ANTIALIAS_ON);
+            g2d.setColor(new Color(color, true));
+            if (at != null) {
+                g2d.transform(at);
+            }
+            if (stroke == null) {
+                g2d.fill(shape);
+            } else {
+                g2d.setStroke(stroke);
+                g2d.draw(shape);
+            }
+        } finally {
+            g2d.dispose();
+        }
+        return ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+    }
+
+    private static int[] render(final Shape shape, final AffineTransform at,
+                                final BasicStroke stroke, final int color,
+                                final int bg)
+    {
+        // pixels inside a larger array (offset and scanline):
+        final int scanline = SIZE + 13;
+        final int offset = 5 * scanline + 7;
+        final int[] pixels = new int[offset + SIZE * scanline];
+        Arrays.fill(pixels, bg);
+
+        MarlinRasterizer.render(shape, at, stroke, pixels, offset, scanline,
+                                SIZE, SIZE, color);
+
+        final int[] result = new int[SIZE * SIZE];
+        for (int y = 0; y < SIZE; y++) {
+            System.arraycopy(pixels, offset + y * scanline,
+                             result, y * SIZE, SIZE);
+        }
+        return result;
+    }
+
+    // max difference of premultiplied components (low alpha pixels have
+    // imprecise color components in non premultiplied form):
+    private static int maxDiff(final int[] expected, final int[] actual) {
+        int maxDiff = 0, d;
+        for (int i = 0; i < expected.length; i++) {
+            final int e = expected[i];
+            final int a = actual[i];
+            if (e != a) {
+                final int ea = (e >>> 24);
+                final int aa = (a >>> 24);
+                d = Math.abs(ea - aa);
+                if (d > maxDiff) {
+                    maxDiff = d;
+                }
+                for (int s = 0; s < 24; s += 8) {
+                    d = Math.abs(((e >> s) & 0xFF) * ea
+                                 - ((a >> s) & 0xFF) * aa) / 255;
+                    if (d > maxDiff) {
+                        maxDiff = d;
+                    }
+                }
+            }
+        }
+        return maxDiff;
+    }
+}
@@ -0,0 +1,175 @@
+package marlin;
+
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.Shape;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Path2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Arrays;
+import java.util.Random;
+import org.marlin.pisces.MarlinRasterizer;
+
+/**
+ * Checks the MarlinRasterizer.renderMask() contract: the coverage of the
+ * pixel (px, py) is written at mask[offset + (py - y) * scanline + (px - x)]
+ * for every pixel of the rectangle (0 if not covered, same values as the
+ * Graphics2D alpha coverage), no byte outside the rectangle is modified and
+ * the result is true only if any coverage was written.
+ *
+ * @author bourgesl
+ */
+public class RenderMaskTest {
+
+    private static final int SIZE = 200;
+
+    // max coverage difference (1 subpixel in 8x8 subpixels) as strokes are
+    // clipped to the given rectangle:
+    private static final int TOLERANCE = 4;
+
+    // marker of untouched bytes:
+    private static final byte MARKER = (byte) 0x5A;
+
+    public static void main(String[] args) {
+        final Random r = new Random(3456L);
+
+        final Path2D.Float path = new Path2D.Float();
+        path.moveTo(40.25f, 50.5f);
+        for (int i = 0; i < 30; i++) {
+            if ((i % 3) == 0) {
+                path.quadTo(20f + r.nextFloat() * (SIZE - 40),
+                            20f + r.nextFloat() * (SIZE - 40),
+                            20f + r.nextFloat() * (SIZE - 40),
+                            20f + r.nextFloat() * (SIZE - 40));
+            } else {
+                path.lineTo(20f + r.nextFloat() * (SIZE - 40),
+                            20f + r.nextFloat() * (SIZE - 40));
+            }
+        }
+        path.closePath();
+
+        final BasicStroke[] strokes = new BasicStroke[]{
+            null, new BasicStroke(4.5f),
+            new BasicStroke(3f, BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND,
+                            10f, new float[]{9f, 4f}, 0f)
+        };
+        final AffineTransform[] transforms = new AffineTransform[]{
+            null, new AffineTransform(0.9, 0.2, -0.15, 0.95, 8.5, 3.25)
+        };
+        // rectangles {x, y, width, height}: whole image, sub-rectangles,
+        // partially outside, single row / column and empty (no coverage)
+        final int[][] rects = new int[][]{
+            {0, 0, SIZE, SIZE}, {37, 51, 64, 33}, {100, 3, 99, 150},
+            {-15, -20, 80, 70}, {150, 140, 80, 90}, {0, 97, SIZE, 1},
+            {123, 0, 1, SIZE}, {0, 0, 10, 10}, {SIZE + 5, 10, 20, 20}
+        };
+
+        int errors = 0;
+        for (BasicStroke stroke : strokes) {
+            for (AffineTransform at : transforms) {
+                final int[] expected = paint(path, at, stroke);
+
+                for (int[] rect : rects) {
+                    if (!check(path, at, stroke, expected,
+                               rect[0], rect[1], rect[2], rect[3]))
+                    {
+                        System.out.println("stroke=" + stroke + " at=" + at
+                                           + " rect=" + Arrays.toString(rect)
+                                           + ": failure");
+                        errors++;
+                    }
+                }
+            }
+        }
+        if (errors != 0) {
+            throw new IllegalStateException(errors + " failures");
+        }
+        System.out.println("RenderMaskTest: OK");
+    }
+
+    private static boolean check(final Shape shape, final AffineTransform at,
+                                 final BasicStroke stroke,
+                                 final int[] expected,
+                                 final int x, final int y,
+                                 final int width, final int height)
+    {
+        // mask surrounded by margins (offset and scanline > width):
+        final int scanline = width + 11;
+        final int offset = 3 * scanline + 5;
+        final byte[] mask = new byte[offset + (height + 2) * scanline];
+        Arrays.fill(mask, MARKER);
+
+        final boolean covered = MarlinRasterizer.renderMask(shape, at, stroke,
+                mask, offset, scanline, x, y, width, height);
+
+        boolean anyCoverage = false;
+        boolean ok = true;
+
+        for (int i = 0; i < mask.length; i++) {
+            final int pos = i - offset;
+            final int col = (pos >= 0) ? pos % scanline : -1;
+            final int row = (pos >= 0) ? pos / scanline : -1;
+
+            if (col >= 0 && col < width && row < height) {
+                // inside the rectangle:
+                final int px = x + col;
+                final int py = y + row;
+                final int alpha = (px >= 0 && px < SIZE && py >= 0 && py < SIZE)
+                                  ? (expected[py * SIZE + px] >>> 24) : 0;
+
+                if (Math.abs((mask[i] & 0xFF) - alpha) > TOLERANCE) {
+                    if (ok) {
+                        System.out.println("pixel (" + px + ", " + py
+                                           + "): " + (mask[i] & 0xFF)
+                                           + " != " + alpha);
+                    }
+                    ok = false;
+                }
+                if (mask[i] != 0) {
+                    anyCoverage = true;
+                }
+            } else if (mask[i] != MARKER) {
+                if (ok) {
+                    System.out.println("byte [" + i + "] outside the "
+                                       + "rectangle modified");
+                }
+                ok = false;
+            }
+        }
+        if (covered != anyCoverage) {
+            System.out.println("renderMask() returned " + covered);
+            ok = false;
+        }
+        return ok;
+    }
+
+    private static int[] paint(final Shape shape, final AffineTransform at,
+                               final BasicStroke stroke)
+    {
+        final BufferedImage image = new BufferedImage(SIZE, SIZE,
+                                                      BufferedImage.TYPE_INT_ARGB);
+
+        final Graphics2D g2d = (Graphics2D) image.getGraphics();
+        try {
+            g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING,
+                                 RenderingHints.VALUE_ANTIALIAS_ON);
+            // opaque color on transparent pixels: alpha = coverage
+            g2d.setColor(Color.WHITE);
+            if (at != null) {
+                g2d.transform(at);
+            }
+            if (stroke == null) {
+                g2d.fill(shape);
+            } else {
+                g2d.setStroke(stroke);
+                g2d.draw(shape);
+            }
+        } finally {
+            g2d.dispose();
+        }
+        return ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+    }
+}